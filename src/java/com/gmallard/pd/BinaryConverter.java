@@ -0,0 +1,226 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+/**
+ * This class converts directly between packed decimal fields and big
+ * endian two's complement binary fields (COBOL <code>COMP</code> /
+ * <code>COMP-4</code>), in the manner of the CVB and CVD instructions.
+ * <br /><br />
+ * Binary fields are halfwords (2 bytes), fullwords (4 bytes) or
+ * doublewords (8 bytes).  Conversions go buffer to buffer through a
+ * <code>long</code>, using {@link Unpacker#getLong(byte[], int, int)} and
+ * {@link Packer#pack(long, byte[], int, int)}, and create no objects.
+ * <hr />
+ * This class is thread safe.
+ * <hr />
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public final class BinaryConverter {
+	/**
+	 * Halfword length.
+	 */
+	public static final int HALFWORD = 2;
+	/**
+	 * Fullword length.
+	 */
+	public static final int FULLWORD = 4;
+	/**
+	 * Doubleword length.
+	 */
+	public static final int DOUBLEWORD = 8;
+	/**
+	 * Convert a packed decimal field to a binary field (CVB).
+	 * <br /><br />
+	 * @param src The <code>byte[]</code> holding the packed field.
+	 * @param srcOffset The offset of the packed field.
+	 * @param packedLength The length of the packed field, at most 10.
+	 * @param dest The <code>byte[]</code> to receive the binary field.
+	 * @param destOffset The offset of the binary field.
+	 * @param binaryLength 2, 4 or 8.
+	 * @throws IllegalArgumentException if the binary length is not 2, 4
+	 * or 8, or the value does not fit in it.
+	 * @throws @see {@link Unpacker#getLong(byte[], int, int)}
+	 */
+	public static void packedToBinary(byte[] src, int srcOffset, int packedLength,
+			byte[] dest, int destOffset, int binaryLength)
+	{
+		checkBinaryLength(binaryLength);
+		toBinary(src, srcOffset, packedLength, dest, destOffset, binaryLength);
+	}
+	/**
+	 * Private method to convert one packed field to binary, the binary
+	 * length already checked.
+	 */
+	private static void toBinary(byte[] src, int srcOffset, int packedLength,
+			byte[] dest, int destOffset, int binaryLength)
+	{
+		long value = Unpacker.getLong(src, srcOffset, packedLength);
+		if (binaryLength < DOUBLEWORD)
+		{
+			long limit = 1L << (8 * binaryLength - 1);
+			if (value >= limit || value < -limit)
+				throw new IllegalArgumentException("value too large for " +
+						binaryLength + " byte binary, is: " + value);
+		}
+		for (int i = binaryLength - 1; i >= 0; i--)
+		{
+			dest[destOffset + i] = (byte)value;
+			value >>= 8;
+		}
+	}
+	/**
+	 * Convert a binary field to a packed decimal field (CVD), with a
+	 * preferred sign.
+	 * <br /><br />
+	 * @param src The <code>byte[]</code> holding the binary field.
+	 * @param srcOffset The offset of the binary field.
+	 * @param binaryLength 2, 4 or 8.
+	 * @param dest The <code>byte[]</code> to receive the packed field.
+	 * @param destOffset The offset of the packed field.
+	 * @param packedLength The length of the packed field.
+	 * @throws IllegalArgumentException if the binary length is not 2, 4
+	 * or 8.
+	 * @throws @see {@link Packer#pack(long, byte[], int, int)}
+	 */
+	public static void binaryToPacked(byte[] src, int srcOffset, int binaryLength,
+			byte[] dest, int destOffset, int packedLength)
+	{
+		checkBinaryLength(binaryLength);
+		toPacked(src, srcOffset, binaryLength, dest, destOffset, packedLength);
+	}
+	/**
+	 * Private method to convert one binary field to packed decimal, the
+	 * binary length already checked.
+	 */
+	private static void toPacked(byte[] src, int srcOffset, int binaryLength,
+			byte[] dest, int destOffset, int packedLength)
+	{
+		long value = src[srcOffset];	// sign extends
+		for (int i = 1; i < binaryLength; i++)
+			value = (value << 8) | (src[srcOffset + i] & 0xff);
+		Packer.pack(value, dest, destOffset, packedLength);
+	}
+	/**
+	 * Convert the same packed field in a batch of records to binary.
+	 * <br /><br />
+	 * @param src The <code>byte[]</code> holding the source records.
+	 * @param srcOffset The offset of the packed field in the first record.
+	 * @param srcRecordLength The length of each source record.
+	 * @param packedLength The length of the packed field.
+	 * @param dest The <code>byte[]</code> holding the destination records.
+	 * @param destOffset The offset of the binary field in the first record.
+	 * @param destRecordLength The length of each destination record.
+	 * @param binaryLength 2, 4 or 8.
+	 * @param recordCount The number of records.
+	 * @throws IllegalArgumentException if an offset or the count is
+	 * negative, a record is shorter than its field, or the records do not
+	 * lie within their buffers.  Nothing is written in that case.  A
+	 * record which fails to convert is named in the message.
+	 * @see #packedToBinary(byte[], int, int, byte[], int, int)
+	 */
+	public static void packedToBinary(byte[] src, int srcOffset, int srcRecordLength,
+			int packedLength, byte[] dest, int destOffset, int destRecordLength,
+			int binaryLength, int recordCount)
+	{
+		checkBinaryLength(binaryLength);
+		checkBatch(src, srcOffset, srcRecordLength, packedLength,
+				dest, destOffset, destRecordLength, binaryLength, recordCount);
+		for (int i = 0; i < recordCount; i++)
+		{
+			try {
+				toBinary(src, srcOffset + i * srcRecordLength, packedLength,
+						dest, destOffset + i * destRecordLength, binaryLength);
+			} catch(IllegalArgumentException iae) {
+				throw new IllegalArgumentException("record " + i + ": " +
+						iae.getMessage(), iae);
+			}
+		}
+	}
+	/**
+	 * Convert the same binary field in a batch of records to packed
+	 * decimal.
+	 * <br /><br />
+	 * @param src The <code>byte[]</code> holding the source records.
+	 * @param srcOffset The offset of the binary field in the first record.
+	 * @param srcRecordLength The length of each source record.
+	 * @param binaryLength 2, 4 or 8.
+	 * @param dest The <code>byte[]</code> holding the destination records.
+	 * @param destOffset The offset of the packed field in the first record.
+	 * @param destRecordLength The length of each destination record.
+	 * @param packedLength The length of the packed field.
+	 * @param recordCount The number of records.
+	 * @throws @see {@link #packedToBinary(byte[], int, int, int, byte[], int, int, int, int)}
+	 * @see #binaryToPacked(byte[], int, int, byte[], int, int)
+	 */
+	public static void binaryToPacked(byte[] src, int srcOffset, int srcRecordLength,
+			int binaryLength, byte[] dest, int destOffset, int destRecordLength,
+			int packedLength, int recordCount)
+	{
+		checkBinaryLength(binaryLength);
+		checkBatch(src, srcOffset, srcRecordLength, binaryLength,
+				dest, destOffset, destRecordLength, packedLength, recordCount);
+		for (int i = 0; i < recordCount; i++)
+		{
+			try {
+				toPacked(src, srcOffset + i * srcRecordLength, binaryLength,
+						dest, destOffset + i * destRecordLength, packedLength);
+			} catch(IllegalArgumentException iae) {
+				throw new IllegalArgumentException("record " + i + ": " +
+						iae.getMessage(), iae);
+			}
+		}
+	}
+	/**
+	 * Private method to check batch arguments, before anything is written.
+	 */
+	private static void checkBatch(byte[] src, int srcOffset, int srcRecordLength,
+			int srcFieldLength, byte[] dest, int destOffset, int destRecordLength,
+			int destFieldLength, int recordCount)
+	{
+		if (srcOffset < 0 || destOffset < 0 || recordCount < 0 ||
+				srcFieldLength <= 0 || destFieldLength <= 0 ||
+				srcRecordLength < srcFieldLength ||
+				destRecordLength < destFieldLength ||
+				(recordCount > 0 &&
+					((long)srcOffset + (long)srcRecordLength * (recordCount - 1) +
+						srcFieldLength > src.length ||
+					(long)destOffset + (long)destRecordLength * (recordCount - 1) +
+						destFieldLength > dest.length)))
+			throw new IllegalArgumentException("Bad value(s), srcOffset: " +
+					srcOffset + ", srcRecordLength: " + srcRecordLength +
+					", destOffset: " + destOffset +
+					", destRecordLength: " + destRecordLength +
+					", recordCount: " + recordCount);
+		return;
+	}
+	/**
+	 * Private method to check a binary field length.
+	 */
+	private static void checkBinaryLength(int binaryLength)
+	{
+		if (binaryLength != HALFWORD && binaryLength != FULLWORD &&
+				binaryLength != DOUBLEWORD)
+			throw new IllegalArgumentException("binary length not 2, 4 or 8, is: " +
+					binaryLength);
+		return;
+	}
+} // end of class
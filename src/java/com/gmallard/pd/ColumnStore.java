@@ -0,0 +1,649 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+/**
+ * This class is an in-memory column store for fixed length records with
+ * packed decimal fields.
+ * <br /><br />
+ * Records are unpacked once, when they are appended.  Each column is kept
+ * in the narrowest form which holds it: an <code>int[]</code> of unscaled
+ * values for fields of up to 9 digits, a <code>long[]</code> for up to 18
+ * digits, and the raw packed bytes in a direct (off heap)
+ * <code>ByteBuffer</code> for wider fields.
+ * <br /><br />
+ * Rows are grouped in chunks.  Each chunk keeps the minimum and maximum of
+ * every column (a zone map), so a range filter skips chunks which cannot
+ * match, and takes chunks which match entirely without looking at their
+ * rows.  Queries run over chunks in parallel in the common fork/join pool.
+ * <br /><br />
+ * Range filters are inclusive, on a column of up to 18 digits; a
+ * <code>null</code> bound is unbounded.
+ * <hr />
+ * Queries may run concurrently with each other, but not with
+ * {@link #addColumn(int, int, int)} or {@link #append(byte[], int, int)}.
+ * <hr />
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public final class ColumnStore {
+	/**
+	 * Column representations.
+	 */
+	private static final int INT = 0;
+	private static final int LONG = 1;
+	private static final int WIDE = 2;
+	/**
+	 * Length of each record.
+	 */
+	private final int recordLength;
+	/**
+	 * Rows per chunk, a multiple of 64.
+	 */
+	private final int chunkSize;
+	/**
+	 * Column layouts.
+	 */
+	private final List<int[]> columns = new ArrayList<int[]>();
+	/**
+	 * The chunks, the last of which may be partly filled.
+	 */
+	private final List<Chunk> chunks = new ArrayList<Chunk>();
+	/**
+	 * Number of rows.
+	 */
+	private int rowCount;
+	/**
+	 * One chunk of rows.
+	 */
+	private static final class Chunk {
+		int size;
+		final Object[] data;
+		final long[] min;
+		final long[] max;
+		final BigInteger[] wideMin;
+		final BigInteger[] wideMax;
+		Chunk(int columnCount)
+		{
+			data = new Object[columnCount];
+			min = new long[columnCount];
+			max = new long[columnCount];
+			wideMin = new BigInteger[columnCount];
+			wideMax = new BigInteger[columnCount];
+		}
+	}
+	/**
+	 * The result of a query over one column.
+	 */
+	public static final class Aggregate {
+		private final int scale;
+		private long count;
+		private BigInteger sum = BigInteger.ZERO;
+		private BigInteger min;
+		private BigInteger max;
+		/**
+		 * Private constructor, aggregates come from queries.
+		 */
+		private Aggregate(int scale)
+		{
+			this.scale = scale;
+		}
+		/**
+		 * Return the number of rows which matched.
+		 * @return The row count.
+		 */
+		public long getCount()
+		{
+			return count;
+		}
+		/**
+		 * Return the sum of the column over the matching rows.
+		 * @return The sum, zero if no rows matched.
+		 */
+		public BigDecimal getSum()
+		{
+			return new BigDecimal(sum, scale);
+		}
+		/**
+		 * Return the minimum of the column over the matching rows.
+		 * @return The minimum, or <code>null</code> if no rows matched.
+		 */
+		public BigDecimal getMin()
+		{
+			return min == null ? null : new BigDecimal(min, scale);
+		}
+		/**
+		 * Return the maximum of the column over the matching rows.
+		 * @return The maximum, or <code>null</code> if no rows matched.
+		 */
+		public BigDecimal getMax()
+		{
+			return max == null ? null : new BigDecimal(max, scale);
+		}
+		/**
+		 * Private method to fold in another aggregate.
+		 */
+		private Aggregate add(Aggregate other)
+		{
+			count += other.count;
+			sum = sum.add(other.sum);
+			if (other.min != null && (min == null || other.min.compareTo(min) < 0))
+				min = other.min;
+			if (other.max != null && (max == null || other.max.compareTo(max) > 0))
+				max = other.max;
+			return this;
+		}
+	}
+	/**
+	 * Create an empty store.
+	 * <br /><br />
+	 * @param recordLength The length of the records to be appended.
+	 * @param chunkSize Rows per chunk, rounded up to a multiple of 64.
+	 * @throws IllegalArgumentException if a value is not positive.
+	 */
+	public ColumnStore(int recordLength, int chunkSize)
+	{
+		if (recordLength <= 0 || chunkSize <= 0)
+			throw new IllegalArgumentException("Bad value(s), recordLength: " +
+					recordLength + ", chunkSize: " + chunkSize);
+		this.recordLength = recordLength;
+		this.chunkSize = (chunkSize + 63) & ~63;
+	}
+	/**
+	 * Define a packed decimal column.  All columns must be defined before
+	 * the first record is appended.
+	 * <br /><br />
+	 * @param offset The offset of the field within a record.
+	 * @param numBytes The length of the field.
+	 * @param scale The number of implied decimal places.
+	 * @return The column number, used in queries.
+	 * @throws IllegalArgumentException if the field does not lie within the
+	 * record, or <code>scale</code> is negative.
+	 * @throws IllegalStateException if records have been appended.
+	 */
+	public int addColumn(int offset, int numBytes, int scale)
+	{
+		if (offset < 0 || numBytes <= 0 || offset + numBytes > recordLength ||
+				scale < 0)
+			throw new IllegalArgumentException("Bad value(s), offset: " +
+					offset + ", numBytes: " + numBytes + ", scale: " + scale);
+		if (rowCount != 0)
+			throw new IllegalStateException("records already appended");
+		int digits = 2 * numBytes - 1;
+		int kind = digits <= 9 ? INT : digits <= 18 ? LONG : WIDE;
+		columns.add(new int[] {offset, numBytes, scale, kind});
+		return columns.size() - 1;
+	}
+	/**
+	 * Append a batch of records.
+	 * <br /><br />
+	 * @param buffer The <code>byte[]</code> holding the records.
+	 * @param offset The offset of the first record.
+	 * @param recordCount The number of records.
+	 * @throws IllegalArgumentException if the buffer is too short or a field
+	 * is not valid packed decimal.  Records before the bad one are kept.
+	 */
+	public void append(byte[] buffer, int offset, int recordCount)
+	{
+		if (offset < 0 || recordCount < 0 ||
+				(long)offset + (long)recordLength * recordCount > buffer.length)
+			throw new IllegalArgumentException("Bad value(s), offset: " +
+					offset + ", recordCount: " + recordCount);
+		int columnCount = columns.size();
+		long[] values = new long[columnCount];
+		BigInteger[] wide = new BigInteger[columnCount];
+		for (int r = 0; r < recordCount; r++)
+		{
+			int base = offset + r * recordLength;
+			// Decode the whole record first, so a bad record adds nothing.
+			for (int c = 0; c < columnCount; c++)
+			{
+				int[] col = columns.get(c);
+				if (col[3] != WIDE)
+					values[c] = Unpacker.getLong(buffer, base + col[0], col[1]);
+			}
+			for (int c = 0; c < columnCount; c++)
+			{
+				int[] col = columns.get(c);
+				if (col[3] == WIDE)
+					wide[c] = Unpacker.getBigInteger(buffer, base + col[0], col[1]);
+			}
+			Chunk ch = current();
+			int row = ch.size;
+			for (int c = 0; c < columnCount; c++)
+			{
+				int[] col = columns.get(c);
+				switch (col[3]) {
+					case INT:
+						((int[])ch.data[c])[row] = (int)values[c];
+						break;
+					case LONG:
+						((long[])ch.data[c])[row] = values[c];
+						break;
+					default:	// WIDE
+						ByteBuffer bb = (ByteBuffer)ch.data[c];
+						for (int i = 0; i < col[1]; i++)
+							bb.put(row * col[1] + i, buffer[base + col[0] + i]);
+						if (row == 0 || wide[c].compareTo(ch.wideMin[c]) < 0)
+							ch.wideMin[c] = wide[c];
+						if (row == 0 || wide[c].compareTo(ch.wideMax[c]) > 0)
+							ch.wideMax[c] = wide[c];
+						continue;
+				}
+				if (row == 0 || values[c] < ch.min[c])
+					ch.min[c] = values[c];
+				if (row == 0 || values[c] > ch.max[c])
+					ch.max[c] = values[c];
+			}
+			ch.size++;
+			rowCount++;
+		}
+	}
+	/**
+	 * Return the number of rows.
+	 * @return The row count.
+	 */
+	public int getRowCount()
+	{
+		return rowCount;
+	}
+	/**
+	 * Count the rows where a column lies in a range.
+	 * @param filterColumn The column to filter on.
+	 * @param low The lower bound, inclusive, or <code>null</code>.
+	 * @param high The upper bound, inclusive, or <code>null</code>.
+	 * @return The number of matching rows.
+	 * @throws @see {@link #aggregate(int, int, BigDecimal, BigDecimal)}
+	 */
+	public long count(int filterColumn, BigDecimal low, BigDecimal high)
+	{
+		return query(-1, filterColumn, low, high, null, false).count;
+	}
+	/**
+	 * Select the rows where a column lies in a range.
+	 * @param filterColumn The column to filter on.
+	 * @param low The lower bound, inclusive, or <code>null</code>.
+	 * @param high The upper bound, inclusive, or <code>null</code>.
+	 * @return A <code>BitSet</code> with bit <em>i</em> set when row
+	 * <em>i</em> matches.
+	 * @throws @see {@link #aggregate(int, int, BigDecimal, BigDecimal)}
+	 */
+	public BitSet select(int filterColumn, BigDecimal low, BigDecimal high)
+	{
+		long[] words = new long[chunks.size() * (chunkSize / 64)];
+		query(-1, filterColumn, low, high, words, false);
+		return BitSet.valueOf(words);
+	}
+	/**
+	 * Sum a column over all rows.
+	 * @param column The column.
+	 * @return The sum.
+	 */
+	public BigDecimal sum(int column)
+	{
+		return aggregate(column, -1, null, null).getSum();
+	}
+	/**
+	 * Return the minimum of a column over all rows.  Only the zone maps
+	 * are read.
+	 * @param column The column.
+	 * @return The minimum, or <code>null</code> if there are no rows.
+	 */
+	public BigDecimal min(int column)
+	{
+		checkColumn(column);
+		return query(column, -1, null, null, null, false).getMin();
+	}
+	/**
+	 * Return the maximum of a column over all rows.  Only the zone maps
+	 * are read.
+	 * @param column The column.
+	 * @return The maximum, or <code>null</code> if there are no rows.
+	 */
+	public BigDecimal max(int column)
+	{
+		checkColumn(column);
+		return query(column, -1, null, null, null, false).getMax();
+	}
+	/**
+	 * Return the count, sum, minimum and maximum of a column over the rows
+	 * where another (or the same) column lies in a range.
+	 * <br /><br />
+	 * @param column The column to aggregate.
+	 * @param filterColumn The column to filter on, or -1 for all rows.
+	 * @param low The lower bound, inclusive, or <code>null</code>.
+	 * @param high The upper bound, inclusive, or <code>null</code>.
+	 * @return The aggregate.
+	 * @throws IllegalArgumentException if a column number is bad, or the
+	 * filter column is wider than 18 digits.
+	 */
+	public Aggregate aggregate(int column, int filterColumn, BigDecimal low,
+			BigDecimal high)
+	{
+		checkColumn(column);
+		return query(column, filterColumn, low, high, null, true);
+	}
+	/**
+	 * Private method to check a column number.
+	 */
+	private void checkColumn(int column)
+	{
+		if (column < 0 || column >= columns.size())
+			throw new IllegalArgumentException("Bad column: " + column);
+		return;
+	}
+	/**
+	 * Private method to run a query over all chunks.
+	 */
+	private Aggregate query(int column, int filterColumn, BigDecimal low,
+			BigDecimal high, long[] words, boolean needSum)
+	{
+		long lo = Long.MIN_VALUE;
+		long hi = Long.MAX_VALUE;
+		if (filterColumn >= 0 || low != null || high != null)
+		{
+			if (filterColumn < 0 || filterColumn >= columns.size() ||
+					columns.get(filterColumn)[3] == WIDE)
+				throw new IllegalArgumentException("Bad filter column: " +
+						filterColumn);
+			int scale = columns.get(filterColumn)[2];
+			lo = bound(low, scale, RoundingMode.CEILING, Long.MIN_VALUE);
+			hi = bound(high, scale, RoundingMode.FLOOR, Long.MAX_VALUE);
+		}
+		int scale = column < 0 ? 0 : columns.get(column)[2];
+		if (chunks.isEmpty() || lo > hi)
+			return new Aggregate(scale);
+		return ForkJoinPool.commonPool().invoke(new Task(column, filterColumn,
+				lo, hi, words, needSum, 0, chunks.size()));
+	}
+	/**
+	 * Fork/join task over a range of chunks.
+	 */
+	private final class Task extends RecursiveTask<Aggregate> {
+		private static final long serialVersionUID = 1L;
+		private final int column;
+		private final int filterColumn;
+		private final long lo;
+		private final long hi;
+		private final long[] words;
+		private final boolean needSum;
+		private final int from;
+		private final int to;
+		Task(int column, int filterColumn, long lo, long hi, long[] words,
+				boolean needSum, int from, int to)
+		{
+			this.column = column;
+			this.filterColumn = filterColumn;
+			this.lo = lo;
+			this.hi = hi;
+			this.words = words;
+			this.needSum = needSum;
+			this.from = from;
+			this.to = to;
+		}
+		@Override
+		protected Aggregate compute()
+		{
+			if (to - from == 1)
+				return scan(from, column, filterColumn, lo, hi, words, needSum);
+			int mid = (from + to) >>> 1;
+			Task left = new Task(column, filterColumn, lo, hi, words, needSum,
+					from, mid);
+			left.fork();
+			Aggregate right = new Task(column, filterColumn, lo, hi, words,
+					needSum, mid, to).compute();
+			return right.add(left.join());
+		}
+	}
+	/**
+	 * Private method to query one chunk.
+	 */
+	private Aggregate scan(int c, int column, int filterColumn, long lo, long hi,
+			long[] words, boolean needSum)
+	{
+		Chunk ch = chunks.get(c);
+		Aggregate ret = new Aggregate(column < 0 ? 0 : columns.get(column)[2]);
+		int n = ch.size;
+		int wordBase = c * (chunkSize / 64);
+		long[] mask = null;
+		if (filterColumn >= 0)
+		{
+			if (ch.max[filterColumn] < lo || ch.min[filterColumn] > hi)
+				return ret;						// zone map: no row matches
+			if (ch.min[filterColumn] < lo || ch.max[filterColumn] > hi)
+				mask = match(ch.data[filterColumn], n, lo, hi);
+		}
+		if (mask == null)
+		{
+			// Every row matches.
+			ret.count = n;
+			if (words != null)
+			{
+				for (int w = 0; w < n / 64; w++)
+					words[wordBase + w] = -1L;
+				if (n % 64 != 0)
+					words[wordBase + n / 64] = (1L << (n % 64)) - 1;
+			}
+			if (column >= 0)
+			{
+				boolean wide = columns.get(column)[3] == WIDE;
+				ret.min = wide ? ch.wideMin[column] : BigInteger.valueOf(ch.min[column]);
+				ret.max = wide ? ch.wideMax[column] : BigInteger.valueOf(ch.max[column]);
+				if (needSum)
+					ret.sum = sumAll(ch, column);
+			}
+			return ret;
+		}
+		for (long w : mask)
+			ret.count += Long.bitCount(w);
+		if (words != null)
+			System.arraycopy(mask, 0, words, wordBase, mask.length);
+		if (column >= 0 && ret.count != 0)
+			sumMasked(ch, column, mask, ret);
+		return ret;
+	}
+	/**
+	 * Private method to test a narrow column against a range, giving one
+	 * bit per row.
+	 */
+	private long[] match(Object data, int n, long lo, long hi)
+	{
+		long[] ret = new long[(n + 63) / 64];
+		if (data instanceof int[])
+		{
+			int[] v = (int[])data;
+			for (int r = 0; r < n; r++)
+			{
+				long bit = (v[r] >= lo & v[r] <= hi) ? 1L : 0L;
+				ret[r >> 6] |= bit << r;
+			}
+		} else {
+			long[] v = (long[])data;
+			for (int r = 0; r < n; r++)
+			{
+				long bit = (v[r] >= lo & v[r] <= hi) ? 1L : 0L;
+				ret[r >> 6] |= bit << r;
+			}
+		}
+		return ret;
+	}
+	/**
+	 * Private method to sum every row of a column in a chunk.
+	 */
+	private BigInteger sumAll(Chunk ch, int column)
+	{
+		int n = ch.size;
+		Object data = ch.data[column];
+		if (data instanceof int[])
+		{
+			int[] v = (int[])data;
+			long sum = 0;
+			for (int r = 0; r < n; r++)
+				sum += v[r];
+			return BigInteger.valueOf(sum);
+		}
+		if (data instanceof long[])
+		{
+			long[] v = (long[])data;
+			long sum = 0;
+			boolean overflow = false;
+			for (int r = 0; r < n; r++)
+			{
+				long s = sum + v[r];
+				overflow |= ((sum ^ s) & (v[r] ^ s)) < 0;
+				sum = s;
+			}
+			if (!overflow)
+				return BigInteger.valueOf(sum);
+			BigInteger ret = BigInteger.ZERO;
+			for (int r = 0; r < n; r++)
+				ret = ret.add(BigInteger.valueOf(v[r]));
+			return ret;
+		}
+		int numBytes = columns.get(column)[1];
+		byte[] scratch = new byte[numBytes];
+		BigInteger ret = BigInteger.ZERO;
+		for (int r = 0; r < n; r++)
+			ret = ret.add(wideValue((ByteBuffer)data, r, scratch));
+		return ret;
+	}
+	/**
+	 * Private method to sum, and find the minimum and maximum of, the rows
+	 * of a column selected by a mask.
+	 */
+	private void sumMasked(Chunk ch, int column, long[] mask, Aggregate ret)
+	{
+		Object data = ch.data[column];
+		if (data instanceof ByteBuffer)
+		{
+			byte[] scratch = new byte[columns.get(column)[1]];
+			for (int r = nextSet(mask, 0); r >= 0; r = nextSet(mask, r + 1))
+			{
+				BigInteger v = wideValue((ByteBuffer)data, r, scratch);
+				ret.sum = ret.sum.add(v);
+				if (ret.min == null || v.compareTo(ret.min) < 0)
+					ret.min = v;
+				if (ret.max == null || v.compareTo(ret.max) > 0)
+					ret.max = v;
+			}
+			return;
+		}
+		long sum = 0;
+		BigInteger big = BigInteger.ZERO;
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (int r = nextSet(mask, 0); r >= 0; r = nextSet(mask, r + 1))
+		{
+			long v = data instanceof int[] ? ((int[])data)[r] : ((long[])data)[r];
+			long s = sum + v;
+			if (((sum ^ s) & (v ^ s)) < 0)
+			{
+				big = big.add(BigInteger.valueOf(sum));	// spill on overflow
+				s = v;
+			}
+			sum = s;
+			min = Math.min(min, v);
+			max = Math.max(max, v);
+		}
+		ret.sum = big.add(BigInteger.valueOf(sum));
+		ret.min = BigInteger.valueOf(min);
+		ret.max = BigInteger.valueOf(max);
+	}
+	/**
+	 * Private method to find the next set bit of a mask.
+	 */
+	private static int nextSet(long[] mask, int from)
+	{
+		int w = from >> 6;
+		if (w >= mask.length)
+			return -1;
+		long word = mask[w] & (-1L << from);
+		while (word == 0)
+		{
+			if (++w == mask.length)
+				return -1;
+			word = mask[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+	/**
+	 * Private method to decode one wide value.
+	 */
+	private static BigInteger wideValue(ByteBuffer data, int r, byte[] scratch)
+	{
+		int base = r * scratch.length;
+		for (int i = 0; i < scratch.length; i++)
+			scratch[i] = data.get(base + i);
+		return Unpacker.getBigInteger(scratch, 0, scratch.length);
+	}
+	/**
+	 * Private method to return the chunk to append to, adding one if needed.
+	 */
+	private Chunk current()
+	{
+		if (!chunks.isEmpty())
+		{
+			Chunk last = chunks.get(chunks.size() - 1);
+			if (last.size < chunkSize)
+				return last;
+		}
+		Chunk ret = new Chunk(columns.size());
+		for (int c = 0; c < columns.size(); c++)
+		{
+			int[] col = columns.get(c);
+			switch (col[3]) {
+				case INT:
+					ret.data[c] = new int[chunkSize];
+					break;
+				case LONG:
+					ret.data[c] = new long[chunkSize];
+					break;
+				default:	// WIDE
+					ret.data[c] = ByteBuffer.allocateDirect(chunkSize * col[1]);
+					break;
+			}
+		}
+		chunks.add(ret);
+		return ret;
+	}
+	/**
+	 * Private method to convert a filter bound to an unscaled value,
+	 * clamped to the <code>long</code> range.
+	 */
+	private static long bound(BigDecimal b, int scale, RoundingMode mode,
+			long unbounded)
+	{
+		if (b == null)
+			return unbounded;
+		BigInteger u = b.setScale(scale, mode).unscaledValue();
+		if (u.bitLength() > 63)
+			return u.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+		return u.longValue();
+	}
+} // end of class
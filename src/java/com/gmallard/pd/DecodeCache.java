@@ -0,0 +1,363 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.math.BigDecimal;
+/**
+ * This class is an opt-in decode cache for one low cardinality packed
+ * decimal field, such as a branch code or status code.
+ * <br /><br />
+ * Entries are keyed on the raw packed bytes, held in a <code>long</code>
+ * when the field is 8 bytes or less.  A hit returns the same canonical
+ * <code>String</code>, <code>Long</code> or <code>BigDecimal</code>
+ * instance each time, without decoding or validating the bytes again.
+ * Each representation is decoded the first time it is asked for, and
+ * bytes which do not decode are never entered.
+ * <br /><br />
+ * The table is a fixed size array.  A key is looked for in a short
+ * window of slots after its hash position; when the window is full a
+ * slot is chosen by the clock (second chance) rule: slots used since the
+ * last sweep are passed over once.
+ * <hr />
+ * This class is <em>not</em> thread safe.  Use one instance per field per
+ * thread.
+ * <hr />
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public final class DecodeCache {
+	/**
+	 * Number of slots probed for a key.
+	 */
+	private static final int WINDOW = 8;
+	/**
+	 * Length of the cached field.
+	 */
+	private final int fieldLength;
+	/**
+	 * Scale used for <code>BigDecimal</code> values.
+	 */
+	private final int scale;
+	/**
+	 * Slot mask, the table size less one.
+	 */
+	private final int mask;
+	/**
+	 * Keys for fields of 8 bytes or less.
+	 */
+	private final long[] keys;
+	/**
+	 * Keys for wider fields, <code>fieldLength</code> bytes per slot.
+	 */
+	private final byte[] wideKeys;
+	/**
+	 * Whether each slot holds an entry.
+	 */
+	private final boolean[] used;
+	/**
+	 * Clock reference bits.
+	 */
+	private final boolean[] referenced;
+	/**
+	 * Cached values, filled in as they are asked for.
+	 */
+	private final String[] strings;
+	private final Long[] longs;
+	private final BigDecimal[] decimals;
+	/**
+	 * Statistics.
+	 */
+	private long hits;
+	private long misses;
+	private long evictions;
+	/**
+	 * Create a cache for one field.
+	 * <br /><br />
+	 * @param fieldLength The length of the packed field in bytes.
+	 * @param scale The number of implied decimal places, used for
+	 * <code>BigDecimal</code> values.
+	 * @param capacity The number of entries, rounded up to a power of two.
+	 * @throws IllegalArgumentException if <code>fieldLength</code> or
+	 * <code>capacity</code> is not positive, or <code>scale</code> is
+	 * negative.
+	 */
+	public DecodeCache(int fieldLength, int scale, int capacity)
+	{
+		if (fieldLength <= 0 || scale < 0 || capacity <= 0 ||
+				capacity > (1 << 30))
+			throw new IllegalArgumentException("Bad value(s), fieldLength: " +
+					fieldLength + ", scale: " + scale + ", capacity: " + capacity);
+		this.fieldLength = fieldLength;
+		this.scale = scale;
+		int size = Math.max(Integer.highestOneBit(capacity - 1) << 1, WINDOW);
+		mask = size - 1;
+		keys = fieldLength <= 8 ? new long[size] : null;
+		wideKeys = fieldLength <= 8 ? null : new byte[size * fieldLength];
+		used = new boolean[size];
+		referenced = new boolean[size];
+		strings = new String[size];
+		longs = new Long[size];
+		decimals = new BigDecimal[size];
+	}
+	/**
+	 * Return the <code>String</code> value of the field, as
+	 * {@link Unpacker#getDecString(byte[], int, int)} does.
+	 * @param packedDecimal The <code>byte[]</code> holding the field.
+	 * @param startByte The offset of the field.
+	 * @return The canonical <code>String</code> for the field bytes.
+	 * @throws @see {@link Unpacker#getDecString(byte[], int, int)}
+	 */
+	public String getDecString(byte[] packedDecimal, int startByte)
+	{
+		long key = key(packedDecimal, startByte);
+		int slot = find(key, packedDecimal, startByte);
+		if (slot >= 0 && strings[slot] != null)
+		{
+			hits++;
+			return strings[slot];
+		}
+		misses++;
+		String ret = Unpacker.getDecString(packedDecimal, startByte, fieldLength);
+		if (slot < 0)
+			slot = insert(key, packedDecimal, startByte);
+		strings[slot] = ret;
+		return ret;
+	}
+	/**
+	 * Return the signed <code>Long</code> value of the field, as
+	 * {@link Unpacker#getLong(byte[], int, int)} does.
+	 * @param packedDecimal The <code>byte[]</code> holding the field.
+	 * @param startByte The offset of the field.
+	 * @return The canonical <code>Long</code> for the field bytes.
+	 * @throws @see {@link Unpacker#getLong(byte[], int, int)}
+	 */
+	public Long getLong(byte[] packedDecimal, int startByte)
+	{
+		long key = key(packedDecimal, startByte);
+		int slot = find(key, packedDecimal, startByte);
+		if (slot >= 0 && longs[slot] != null)
+		{
+			hits++;
+			return longs[slot];
+		}
+		misses++;
+		Long ret = Long.valueOf(Unpacker.getLong(packedDecimal, startByte,
+				fieldLength));
+		if (slot < 0)
+			slot = insert(key, packedDecimal, startByte);
+		longs[slot] = ret;
+		return ret;
+	}
+	/**
+	 * Return the signed <code>BigDecimal</code> value of the field, at the
+	 * scale given when the cache was created.
+	 * @param packedDecimal The <code>byte[]</code> holding the field.
+	 * @param startByte The offset of the field.
+	 * @return The canonical <code>BigDecimal</code> for the field bytes.
+	 * @throws @see {@link Unpacker#getBigDecimal(byte[], int, int, int)}
+	 */
+	public BigDecimal getBigDecimal(byte[] packedDecimal, int startByte)
+	{
+		long key = key(packedDecimal, startByte);
+		int slot = find(key, packedDecimal, startByte);
+		if (slot >= 0 && decimals[slot] != null)
+		{
+			hits++;
+			return decimals[slot];
+		}
+		misses++;
+		BigDecimal ret = Unpacker.getBigDecimal(packedDecimal, startByte,
+				fieldLength, scale);
+		if (slot < 0)
+			slot = insert(key, packedDecimal, startByte);
+		decimals[slot] = ret;
+		return ret;
+	}
+	/**
+	 * Return the number of lookups which found the value asked for.
+	 * @return The hit count.
+	 */
+	public long getHits()
+	{
+		return hits;
+	}
+	/**
+	 * Return the number of lookups which had to decode the field.
+	 * @return The miss count.
+	 */
+	public long getMisses()
+	{
+		return misses;
+	}
+	/**
+	 * Return the number of entries replaced to make room.
+	 * @return The eviction count.
+	 */
+	public long getEvictions()
+	{
+		return evictions;
+	}
+	/**
+	 * Return the fraction of lookups which found an entry.
+	 * @return The hit rate, 0.0 if there have been no lookups.
+	 */
+	public double getHitRate()
+	{
+		long total = hits + misses;
+		return total == 0 ? 0.0 : (double)hits / total;
+	}
+	/**
+	 * Clear the cache and its statistics.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i <= mask; i++)
+			empty(i);
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+	/**
+	 * Private method to check the field position and build its key.
+	 * @return The field bytes as a <code>long</code>, or 0 when the field
+	 * is wider than 8 bytes.
+	 */
+	private long key(byte[] packedDecimal, int startByte)
+	{
+		if (startByte < 0 || startByte + fieldLength > packedDecimal.length)
+			throw new IllegalArgumentException("Bad value, startByte: " +
+					startByte);
+		long key = 0;
+		if (keys != null)
+		{
+			for (int i = 0; i < fieldLength; i++)
+				key = (key << 8) | (packedDecimal[startByte + i] & 0xff);
+		}
+		return key;
+	}
+	/**
+	 * Private method to find the home slot of a key.
+	 */
+	private int home(long key, byte[] packedDecimal, int startByte)
+	{
+		long hash = key;
+		if (keys == null)
+		{
+			for (int i = 0; i < fieldLength; i++)
+				hash = hash * 31 + (packedDecimal[startByte + i] & 0xff);
+		}
+		hash *= 0x9e3779b97f4a7c15L;
+		return (int)(hash >>> 32);
+	}
+	/**
+	 * Private method to find the slot holding a key.  A slot found is
+	 * marked as referenced, whether or not it holds the value wanted.
+	 * @return The slot, or -1 if the key is not in the table.
+	 */
+	private int find(long key, byte[] packedDecimal, int startByte)
+	{
+		int home = home(key, packedDecimal, startByte);
+		for (int i = 0; i < WINDOW; i++)
+		{
+			int s = (home + i) & mask;
+			if (!used[s])
+				return -1;
+			if (matches(s, key, packedDecimal, startByte))
+			{
+				referenced[s] = true;
+				return s;
+			}
+		}
+		return -1;
+	}
+	/**
+	 * Private method to make a slot for a key not in the table.  A new
+	 * slot holds the key but no values.  Called only once the field has
+	 * decoded, so invalid data is never entered.
+	 */
+	private int insert(long key, byte[] packedDecimal, int startByte)
+	{
+		int home = home(key, packedDecimal, startByte);
+		for (int i = 0; i < WINDOW; i++)
+		{
+			int s = (home + i) & mask;
+			if (!used[s])
+			{
+				fill(s, key, packedDecimal, startByte);
+				return s;
+			}
+		}
+		// Window full: clock sweep for a slot not referenced since the last pass.
+		int victim = home & mask;
+		for (int i = 0; i < WINDOW; i++)
+		{
+			int s = (home + i) & mask;
+			if (!referenced[s])
+			{
+				victim = s;
+				break;
+			}
+			referenced[s] = false;
+		}
+		evictions++;
+		empty(victim);
+		fill(victim, key, packedDecimal, startByte);
+		return victim;
+	}
+	/**
+	 * Private method to test if a slot holds a key.
+	 */
+	private boolean matches(int s, long key, byte[] packedDecimal, int startByte)
+	{
+		if (keys != null)
+			return keys[s] == key;
+		int base = s * fieldLength;
+		for (int i = 0; i < fieldLength; i++)
+		{
+			if (wideKeys[base + i] != packedDecimal[startByte + i])
+				return false;
+		}
+		return true;
+	}
+	/**
+	 * Private method to store a key in a slot.
+	 */
+	private void fill(int s, long key, byte[] packedDecimal, int startByte)
+	{
+		if (keys != null)
+			keys[s] = key;
+		else
+			System.arraycopy(packedDecimal, startByte, wideKeys, s * fieldLength,
+					fieldLength);
+		used[s] = true;
+		referenced[s] = false;
+	}
+	/**
+	 * Private method to empty a slot.
+	 */
+	private void empty(int s)
+	{
+		used[s] = false;
+		referenced[s] = false;
+		strings[s] = null;
+		longs[s] = null;
+		decimals[s] = null;
+	}
+} // end of class
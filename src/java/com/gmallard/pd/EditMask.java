@@ -0,0 +1,449 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+/**
+ * This class formats packed decimal fields for printing through a
+ * COBOL style edit mask, such as <code>ZZZ,ZZ9.99-</code> or
+ * <code>$$$,$$9.99CR</code>, in the manner of the ED and EDMK
+ * instructions.
+ * <br /><br />
+ * A mask is compiled once.  Each call then reads the digits straight
+ * from the packed bytes and writes the edited result into a caller
+ * supplied <code>char[]</code> or <code>byte[]</code> (ISO-8859-1).
+ * Nothing is allocated per call.
+ * <br /><br />
+ * Mask characters:
+ * <ul>
+ * <li><code>9</code> a digit, always shown</li>
+ * <li><code>Z</code> a digit, replaced by a space until the first
+ * significant digit</li>
+ * <li><code>*</code> a digit, replaced by an asterisk until the first
+ * significant digit</li>
+ * <li><code>$</code>, <code>+</code>, <code>-</code> repeated: floating
+ * insertion.  The first character of the run is not a digit position,
+ * the rest are; the symbol is written just left of the first significant
+ * digit.  The run may continue past insertion characters and the decimal
+ * point, as in <code>$$$,$$9</code> or <code>$$$.$$</code></li>
+ * <li><code>$</code> alone: a fixed currency symbol</li>
+ * <li><code>+</code> or <code>-</code> alone: a fixed sign, <code>+</code>
+ * shows either sign, <code>-</code> shows a space for positive values</li>
+ * <li><code>CR</code> or <code>DB</code> at the end: shown for negative
+ * values, spaces otherwise</li>
+ * <li><code>,</code> <code>B</code> <code>0</code> <code>/</code>
+ * inserted, once significance has started</li>
+ * <li><code>.</code> the decimal point, always shown, and starts
+ * significance</li>
+ * </ul>
+ * Any character may be followed by a repeat count, e.g. <code>Z(6)9</code>.
+ * The digit positions take the low order digits of the field, so the mask
+ * should have as many decimal places as the field has.  A zero value with
+ * no <code>9</code> in the mask is edited as all fill characters.
+ * <hr />
+ * This class is thread safe.
+ * <hr />
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public final class EditMask {
+	/**
+	 * Operations, one per output position.
+	 */
+	private static final byte DIGIT = 0;
+	private static final byte ZDIGIT = 1;
+	private static final byte FLOAT_DIGIT = 2;
+	private static final byte FLOAT_LEAD = 3;
+	private static final byte INSERT = 4;
+	private static final byte POINT = 5;
+	private static final byte LITERAL = 6;
+	private static final byte SIGN_PLUS = 7;
+	private static final byte SIGN_MINUS = 8;
+	private static final byte SIGN_LITERAL = 9;
+	/**
+	 * The mask as given.
+	 */
+	private final String mask;
+	/**
+	 * Operation for each output position.
+	 */
+	private final byte[] ops;
+	/**
+	 * Literal character for each output position, where needed.
+	 */
+	private final char[] lits;
+	/**
+	 * Number of digit positions.
+	 */
+	private final int digitCount;
+	/**
+	 * Whether the mask has a <code>9</code>.
+	 */
+	private final boolean hasNines;
+	/**
+	 * Character used for suppressed positions.
+	 */
+	private final char fill;
+	/**
+	 * Floating insertion character, or 0 if none.
+	 */
+	private final char floatChar;
+	/**
+	 * Private constructor, use {@link #compile(String)}.
+	 */
+	private EditMask(String mask, byte[] ops, char[] lits, char fill,
+			char floatChar)
+	{
+		this.mask = mask;
+		this.ops = ops;
+		this.lits = lits;
+		this.fill = fill;
+		this.floatChar = floatChar;
+		int digits = 0;
+		boolean nines = false;
+		for (byte op : ops)
+		{
+			if (op == DIGIT || op == ZDIGIT || op == FLOAT_DIGIT)
+				digits++;
+			if (op == DIGIT)
+				nines = true;
+		}
+		digitCount = digits;
+		hasNines = nines;
+	}
+	/**
+	 * Compile an edit mask.
+	 * <br /><br />
+	 * @param mask The mask, e.g. <code>ZZZ,ZZ9.99-</code>.
+	 * @return The compiled mask.
+	 * @throws IllegalArgumentException if the mask contains an unsupported
+	 * character, a bad repeat count, more than one floating insertion run,
+	 * or no digit positions.
+	 */
+	public static EditMask compile(String mask)
+	{
+		String m = expand(mask);
+		int len = m.length();
+		byte[] ops = new byte[len];
+		char[] lits = new char[len];
+		char fill = ' ';
+		char floatChar = 0;
+		boolean floatOpen = false;
+		for (int i = 0; i < len; i++)
+		{
+			char c = m.charAt(i);
+			if (i == len - 2 && (m.startsWith("CR", i) || m.startsWith("DB", i)))
+			{
+				ops[i] = ops[i + 1] = SIGN_LITERAL;
+				lits[i] = c;
+				lits[i + 1] = m.charAt(i + 1);
+				break;
+			}
+			switch (c) {
+				case '9':
+					ops[i] = DIGIT;
+					break;
+				case 'Z':
+					ops[i] = ZDIGIT;
+					break;
+				case '*':
+					ops[i] = ZDIGIT;
+					fill = '*';
+					break;
+				case '$':
+				case '+':
+				case '-':
+					int run = 1;
+					while (i + run < len && m.charAt(i + run) == c)
+						run++;
+					if (floatOpen && c == floatChar)
+					{
+						// The floating run continues past an insertion or point.
+						for (int j = 0; j < run; j++)
+							ops[i + j] = FLOAT_DIGIT;
+						i += run - 1;
+						break;
+					}
+					if (run == 1)
+					{
+						ops[i] = c == '$' ? LITERAL : c == '+' ? SIGN_PLUS : SIGN_MINUS;
+						lits[i] = c;
+						break;
+					}
+					if (floatChar != 0)
+						throw new IllegalArgumentException("more than one floating run in mask: " +
+								mask);
+					floatChar = c;
+					ops[i] = FLOAT_LEAD;
+					for (int j = 1; j < run; j++)
+						ops[i + j] = FLOAT_DIGIT;
+					i += run - 1;
+					floatOpen = true;
+					continue;
+				case ',':
+				case '/':
+				case '0':
+					ops[i] = INSERT;
+					lits[i] = c;
+					break;
+				case 'B':
+					ops[i] = INSERT;
+					lits[i] = ' ';
+					break;
+				case '.':
+					ops[i] = POINT;
+					lits[i] = c;
+					break;
+				default:
+					throw new IllegalArgumentException("bad mask character: " + c +
+							", mask: " + mask);
+			}
+			if (ops[i] != INSERT && ops[i] != POINT && ops[i] != FLOAT_DIGIT)
+				floatOpen = false;
+		}
+		EditMask ret = new EditMask(mask, ops, lits, fill, floatChar);
+		if (ret.digitCount == 0)
+			throw new IllegalArgumentException("no digit positions in mask: " + mask);
+		return ret;
+	}
+	/**
+	 * Return the number of characters produced by this mask.
+	 * @return The edited length.
+	 */
+	public int getLength()
+	{
+		return ops.length;
+	}
+	/**
+	 * Return the mask as given to {@link #compile(String)}.
+	 * @return The mask.
+	 */
+	public String getMask()
+	{
+		return mask;
+	}
+	/**
+	 * Edit a packed decimal field into a <code>char[]</code>.
+	 * <br /><br />
+	 * @param packedDecimal The <code>byte[]</code> holding the field.
+	 * @param startByte The offset of the field.
+	 * @param numBytes The length of the field.
+	 * @param dest The <code>char[]</code> to receive
+	 * {@link #getLength()} characters.
+	 * @param destOffset The offset in <code>dest</code>.
+	 * @return As EDMK, the position relative to <code>destOffset</code> of
+	 * the first significant character, or -1 if there is none.
+	 * @throws IllegalArgumentException if the field has a non-numeric digit,
+	 * an invalid sign, or more significant digits than the mask.
+	 */
+	public int format(byte[] packedDecimal, int startByte, int numBytes,
+			char[] dest, int destOffset)
+	{
+		return edit(packedDecimal, startByte, numBytes, dest, null, destOffset);
+	}
+	/**
+	 * Edit a packed decimal field into a <code>byte[]</code>, one
+	 * ISO-8859-1 byte per character.
+	 * @return As EDMK, the position of the first significant character,
+	 * or -1 if there is none.
+	 * @see #format(byte[], int, int, char[], int)
+	 */
+	public int format(byte[] packedDecimal, int startByte, int numBytes,
+			byte[] dest, int destOffset)
+	{
+		return edit(packedDecimal, startByte, numBytes, null, dest, destOffset);
+	}
+	/**
+	 * Private method to edit a field into one of two destinations.
+	 */
+	private int edit(byte[] packedDecimal, int startByte, int numBytes,
+			char[] cdest, byte[] bdest, int destOffset)
+	{
+		if (startByte < 0 || numBytes <= 0)
+			throw new IllegalArgumentException("Bad value(s), startByte: " +
+					startByte + ", numBytes: " + numBytes);
+		int last = startByte + numBytes - 1;
+		int sign = PDUtils.signOf(packedDecimal[last]);
+		if (sign == 0)
+			throw new IllegalArgumentException("Invalid sign byte: 0x" +
+					Unpacker.getHexStringForByte(packedDecimal[last]));
+		// Validate the digits, and check those left of the mask are zero.
+		int fieldDigits = 2 * numBytes - 1;
+		int first = fieldDigits - digitCount;
+		boolean zero = true;
+		for (int d = 0; d < fieldDigits; d++)
+		{
+			int v = digit(packedDecimal, startByte, d);
+			if (v != 0)
+			{
+				if (d < first)
+					throw new IllegalArgumentException("value too large for mask: " +
+							mask);
+				zero = false;
+			}
+		}
+		boolean negative = sign < 0 && !zero;
+		if (zero && !hasNines)
+		{
+			for (int p = 0; p < ops.length; p++)
+				put(cdest, bdest, destOffset + p,
+						fill == '*' && ops[p] == POINT ? '.' : fill);
+			return -1;
+		}
+		//
+		boolean significant = false;
+		int ret = -1;
+		int lastBlank = -1;
+		int d = first;
+		for (int p = 0; p < ops.length; p++)
+		{
+			char out;
+			switch (ops[p]) {
+				case DIGIT:
+				case ZDIGIT:
+				case FLOAT_DIGIT:
+					int v = d < 0 ? 0 : digit(packedDecimal, startByte, d);
+					d++;
+					if (!significant && (v != 0 || ops[p] == DIGIT))
+					{
+						significant = true;
+						ret = p;
+						placeFloat(cdest, bdest, destOffset, lastBlank, negative);
+					}
+					if (significant)
+					{
+						out = (char)('0' + v);
+					} else {
+						out = ops[p] == FLOAT_DIGIT ? ' ' : fill;
+						lastBlank = p;
+					}
+					break;
+				case FLOAT_LEAD:
+					out = ' ';
+					lastBlank = p;
+					break;
+				case INSERT:
+					if (significant)
+					{
+						out = lits[p];
+					} else {
+						out = fill;
+						lastBlank = p;
+					}
+					break;
+				case POINT:
+					if (!significant)
+					{
+						significant = true;
+						ret = p;
+						placeFloat(cdest, bdest, destOffset, lastBlank, negative);
+					}
+					out = lits[p];
+					break;
+				case SIGN_PLUS:
+					out = negative ? '-' : '+';
+					break;
+				case SIGN_MINUS:
+					out = negative ? '-' : ' ';
+					break;
+				case SIGN_LITERAL:
+					out = negative ? lits[p] : ' ';
+					break;
+				default:	// LITERAL
+					out = lits[p];
+					break;
+			}
+			put(cdest, bdest, destOffset + p, out);
+		}
+		return ret;
+	}
+	/**
+	 * Private method to write the floating insertion character, if any,
+	 * into the last suppressed position.
+	 */
+	private void placeFloat(char[] cdest, byte[] bdest, int destOffset,
+			int lastBlank, boolean negative)
+	{
+		if (floatChar == 0 || lastBlank < 0)
+			return;
+		char c = floatChar;
+		if (c == '-' && !negative)
+			c = ' ';
+		else if (c == '+' && negative)
+			c = '-';
+		put(cdest, bdest, destOffset + lastBlank, c);
+	}
+	/**
+	 * Private method to write one character.
+	 */
+	private static void put(char[] cdest, byte[] bdest, int pos, char c)
+	{
+		if (cdest != null)
+			cdest[pos] = c;
+		else
+			bdest[pos] = (byte)c;
+	}
+	/**
+	 * Private method to fetch field digit <code>d</code>, counting from
+	 * the most significant digit.
+	 * @throws IllegalArgumentException if the nibble is not a digit.
+	 */
+	private static int digit(byte[] packedDecimal, int startByte, int d)
+	{
+		int b = packedDecimal[startByte + (d >> 1)];
+		int ret = (d & 1) == 0 ? (b >> 4) & 0x0f : b & 0x0f;
+		if (ret > 9)
+			throw new IllegalArgumentException("Invalid digit nibble: 0x" +
+					Integer.toHexString(ret));
+		return ret;
+	}
+	/**
+	 * Private method to expand repeat counts, e.g. <code>Z(3)</code> to
+	 * <code>ZZZ</code>.  Called only when compiling.
+	 */
+	private static String expand(String mask)
+	{
+		StringBuilder bldr = new StringBuilder(mask.length());
+		for (int i = 0; i < mask.length(); i++)
+		{
+			char c = mask.charAt(i);
+			if (c == '(' && bldr.length() > 0)
+			{
+				int close = mask.indexOf(')', i);
+				int count;
+				try {
+					count = Integer.parseInt(mask.substring(i + 1, close));
+				} catch(RuntimeException re) {
+					throw new IllegalArgumentException("bad repeat count in mask: " +
+							mask);
+				}
+				if (count <= 0)
+					throw new IllegalArgumentException("bad repeat count in mask: " +
+							mask);
+				char prev = bldr.charAt(bldr.length() - 1);
+				for (int j = 1; j < count; j++)
+					bldr.append(prev);
+				i = close;
+			} else {
+				bldr.append(c);
+			}
+		}
+		return bldr.toString();
+	}
+} // end of class
@@ -33,6 +33,13 @@ public final class PDUtils {
 	
 	public static final int UNSIGNED = 0x0000000f;
 	
+	/**
+	 * Sign classification table, indexed by sign nibble.
+	 */
+	private static final int[] SIGN_CLASS = {
+		0, 0, 0, 0, 0, 0, 0, 0, 0, 0,	// 0x00 - 0x09, digits
+		1, -1, 1, -1, 1, 1,				// 0x0a - 0x0f
+	};
 	/**
 	 * Convenience method to determine if a particular byte array
 	 * contains a positive or negative sign nibble.
@@ -106,5 +113,19 @@ public final class PDUtils {
 			(byte)lastByte;
 		return;
 	}
-	
+	/**
+	 * Package private method to classify a sign nibble the way the
+	 * hardware does: 0x0a, 0x0c, 0x0e and 0x0f are treated as positive,
+	 * 0x0b and 0x0d are treated as negative.
+	 * <br /><br />
+	 * Unlike {@link #isPositive(int)} this method does not throw.
+	 * @param signByte The value of the byte to be checked.
+	 * @return 1 for a positive sign, -1 for a negative sign, or 0 if
+	 * the sign nibble is a digit.
+	 */
+	static int signOf(int signByte)
+	{
+		return SIGN_CLASS[signByte & 0x0f];
+	}
+
 }
@@ -0,0 +1,60 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+/**
+ * Describes the packed decimal layout of a field in a class marked with
+ * {@link PackedRecord}.
+ * <br /><br />
+ * The field may be an <code>int</code>, <code>long</code>,
+ * <code>BigInteger</code> or <code>BigDecimal</code>.  Integral fields
+ * receive the unscaled value.  <code>int</code> fields hold up to 9
+ * digits, <code>long</code> fields up to 18.  The field must not be
+ * <code>private</code>, <code>static</code> or <code>final</code>.
+ * 
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface PackedField {
+	/**
+	 * The offset of the field within the record.
+	 */
+	int offset();
+	/**
+	 * The number of digits, e.g. 9 for <code>S9(7)V99</code>.  The field
+	 * occupies <code>digits / 2 + 1</code> bytes.
+	 */
+	int digits();
+	/**
+	 * The number of implied decimal places.
+	 */
+	int scale() default 0;
+	/**
+	 * Whether the field is signed.  Unsigned fields are written with an
+	 * 0x0f sign nibble.
+	 */
+	boolean signed() default true;
+}
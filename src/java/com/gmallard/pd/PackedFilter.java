@@ -0,0 +1,433 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.BitSet;
+/**
+ * This class contains predicates which select fixed length records by
+ * comparing a packed decimal field directly against constants.
+ * <br /><br />
+ * Each constant is packed once, to the width and scale of the field,
+ * when the filter is created.  Records are then tested by comparing raw
+ * packed bytes, with sign awareness, so that no record is ever unpacked.
+ * <br /><br />
+ * Sign nibbles are interpreted as the hardware does: 0x0a, 0x0c, 0x0e
+ * and 0x0f are positive, 0x0b and 0x0d are negative.  A negative
+ * zero compares equal to a positive zero.
+ * <hr />
+ * This class is thread safe.
+ * <hr />
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public final class PackedFilter {
+	/**
+	 * Predicate operators.
+	 */
+	private static final int EQ = 0;
+	private static final int NE = 1;
+	private static final int LT = 2;
+	private static final int LE = 3;
+	private static final int GT = 4;
+	private static final int GE = 5;
+	private static final int BETWEEN = 6;
+	private static final int IN = 7;
+	/**
+	 * Outcomes of a range predicate whose bounds lie outside the field.
+	 */
+	private static final int OPEN = 0;
+	private static final int ALWAYS = 1;
+	private static final int NEVER = 2;
+	/**
+	 * The operator of this filter.
+	 */
+	private final int op;
+	/**
+	 * Offset of the packed field within a record.
+	 */
+	private final int fieldOffset;
+	/**
+	 * Length in bytes of the packed field.
+	 */
+	private final int fieldLength;
+	/**
+	 * Constants, packed to the field width.
+	 */
+	private final byte[][] constants;
+	/**
+	 * Whether each constant is negative.
+	 */
+	private final boolean[] negative;
+	/**
+	 * Whether each constant is zero.
+	 */
+	private final boolean[] zero;
+	/**
+	 * <code>OPEN</code> if records must be compared, otherwise the fixed
+	 * outcome of a range predicate with a bound outside the field.
+	 */
+	private final int outcome;
+	/**
+	 * Private constructor, use the static factory methods.
+	 */
+	private PackedFilter(int op, int fieldOffset, int fieldLength, int scale,
+			String[] values, RoundingMode[] modes)
+	{
+		if (fieldOffset < 0 || fieldLength <= 0 || scale < 0)
+			throw new IllegalArgumentException("Bad value(s), fieldOffset: " +
+					fieldOffset + ", fieldLength: " + fieldLength +
+					", scale: " + scale);
+		this.op = op;
+		this.fieldOffset = fieldOffset;
+		this.fieldLength = fieldLength;
+		constants = new byte[values.length][];
+		negative = new boolean[values.length];
+		zero = new boolean[values.length];
+		int result = OPEN;
+		for (int i = 0; i < values.length; i++)
+		{
+			BigDecimal value = toScale(values[i], scale, modes[i]);
+			negative[i] = value.signum() < 0;
+			zero[i] = value.signum() == 0;
+			if (op < LT || op > BETWEEN || fits(value, fieldLength))
+			{
+				constants[i] = packConstant(value, fieldLength);
+				continue;
+			}
+			// A range bound beyond the field: every field value lies on
+			// the same side of it.
+			boolean above = value.signum() > 0;
+			switch (op) {
+				case LT:
+				case LE:
+					result = above ? ALWAYS : NEVER;
+					break;
+				case GT:
+				case GE:
+					result = above ? NEVER : ALWAYS;
+					break;
+				default:	// BETWEEN, an unbounded side stays null
+					if (above == (i == 0))
+						result = NEVER;
+					break;
+			}
+		}
+		if (op == BETWEEN && result == OPEN &&
+				constants[0] == null && constants[1] == null)
+			result = ALWAYS;
+		outcome = result;
+	}
+	/**
+	 * Select records where the field equals a constant.
+	 * @param fieldOffset The offset of the packed field within a record.
+	 * @param fieldLength The length in bytes of the packed field.
+	 * @param scale The number of implied decimal places in the field.
+	 * @param value The constant, e.g. <code>"1000.00"</code>.
+	 * @return A filter for the predicate.
+	 * @throws IllegalArgumentException if the constant is not numeric,
+	 * cannot be represented exactly at <code>scale</code>, or does not fit
+	 * in the field.
+	 */
+	public static PackedFilter equalTo(int fieldOffset, int fieldLength,
+			int scale, String value)
+	{
+		return new PackedFilter(EQ, fieldOffset, fieldLength, scale,
+				new String[] {value}, new RoundingMode[] {RoundingMode.UNNECESSARY});
+	}
+	/**
+	 * Select records where the field does not equal a constant.
+	 * @see #equalTo(int, int, int, String)
+	 */
+	public static PackedFilter notEqualTo(int fieldOffset, int fieldLength,
+			int scale, String value)
+	{
+		return new PackedFilter(NE, fieldOffset, fieldLength, scale,
+				new String[] {value}, new RoundingMode[] {RoundingMode.UNNECESSARY});
+	}
+	/**
+	 * Select records where the field is less than a constant.  Constants
+	 * with more decimal places than the field are honoured exactly.
+	 * <br /><br />
+	 * A constant too large for the field does not throw: the filter then
+	 * selects either every record or none, without examining records.
+	 * @param fieldOffset The offset of the packed field within a record.
+	 * @param fieldLength The length in bytes of the packed field.
+	 * @param scale The number of implied decimal places in the field.
+	 * @param value The constant, e.g. <code>"1000.00"</code>.
+	 * @return A filter for the predicate.
+	 * @throws IllegalArgumentException if the constant is not numeric.
+	 */
+	public static PackedFilter lessThan(int fieldOffset, int fieldLength,
+			int scale, String value)
+	{
+		return new PackedFilter(LT, fieldOffset, fieldLength, scale,
+				new String[] {value}, new RoundingMode[] {RoundingMode.CEILING});
+	}
+	/**
+	 * Select records where the field is less than or equal to a constant.
+	 * @see #lessThan(int, int, int, String)
+	 */
+	public static PackedFilter lessThanOrEqual(int fieldOffset, int fieldLength,
+			int scale, String value)
+	{
+		return new PackedFilter(LE, fieldOffset, fieldLength, scale,
+				new String[] {value}, new RoundingMode[] {RoundingMode.FLOOR});
+	}
+	/**
+	 * Select records where the field is greater than a constant.
+	 * @see #lessThan(int, int, int, String)
+	 */
+	public static PackedFilter greaterThan(int fieldOffset, int fieldLength,
+			int scale, String value)
+	{
+		return new PackedFilter(GT, fieldOffset, fieldLength, scale,
+				new String[] {value}, new RoundingMode[] {RoundingMode.FLOOR});
+	}
+	/**
+	 * Select records where the field is greater than or equal to a constant.
+	 * @see #lessThan(int, int, int, String)
+	 */
+	public static PackedFilter greaterThanOrEqual(int fieldOffset, int fieldLength,
+			int scale, String value)
+	{
+		return new PackedFilter(GE, fieldOffset, fieldLength, scale,
+				new String[] {value}, new RoundingMode[] {RoundingMode.CEILING});
+	}
+	/**
+	 * Select records where the field lies in an inclusive range.  A bound
+	 * too large for the field leaves that side of the range open, or
+	 * selects no records when the range lies wholly outside the field.
+	 * @param low The lower bound, inclusive.
+	 * @param high The upper bound, inclusive.
+	 * @see #lessThan(int, int, int, String)
+	 */
+	public static PackedFilter between(int fieldOffset, int fieldLength,
+			int scale, String low, String high)
+	{
+		return new PackedFilter(BETWEEN, fieldOffset, fieldLength, scale,
+				new String[] {low, high},
+				new RoundingMode[] {RoundingMode.CEILING, RoundingMode.FLOOR});
+	}
+	/**
+	 * Select records where the field equals any one of a list of constants.
+	 * @param values The constants.
+	 * @see #equalTo(int, int, int, String)
+	 */
+	public static PackedFilter in(int fieldOffset, int fieldLength,
+			int scale, String... values)
+	{
+		RoundingMode[] modes = new RoundingMode[values.length];
+		for (int i = 0; i < modes.length; i++)
+			modes[i] = RoundingMode.UNNECESSARY;
+		return new PackedFilter(IN, fieldOffset, fieldLength, scale,
+				values, modes);
+	}
+	/**
+	 * Test a single record.
+	 * <br /><br />
+	 * @param record The <code>byte[]</code> holding the record.
+	 * @param recordOffset The offset of the first byte of the record.
+	 * @return <code>true</code> if the record satisfies the predicate.
+	 * @throws IllegalArgumentException if the field sign nibble is a digit.
+	 */
+	public boolean matches(byte[] record, int recordOffset)
+	{
+		if (outcome != OPEN)
+			return outcome == ALWAYS;
+		int pos = recordOffset + fieldOffset;
+		switch (op) {
+			case EQ:
+				return compare(record, pos, 0) == 0;
+			case NE:
+				return compare(record, pos, 0) != 0;
+			case LT:
+				return compare(record, pos, 0) < 0;
+			case LE:
+				return compare(record, pos, 0) <= 0;
+			case GT:
+				return compare(record, pos, 0) > 0;
+			case GE:
+				return compare(record, pos, 0) >= 0;
+			case BETWEEN:
+				return (constants[0] == null || compare(record, pos, 0) >= 0) &&
+					(constants[1] == null || compare(record, pos, 1) <= 0);
+			default:	// IN
+				for (int i = 0; i < constants.length; i++)
+				{
+					if (compare(record, pos, i) == 0)
+						return true;
+				}
+				return false;
+		}
+	}
+	/**
+	 * Evaluate the predicate over a batch of fixed length records.
+	 * <br /><br />
+	 * @param buffer The <code>byte[]</code> holding the records.
+	 * @param offset The offset of the first record.
+	 * @param recordLength The length of each record.
+	 * @param recordCount The number of records.
+	 * @return A <code>BitSet</code> with bit <em>i</em> set when record
+	 * <em>i</em> satisfies the predicate.
+	 * @throws @see {@link #select(byte[], int, int, int, BitSet)}
+	 */
+	public BitSet select(byte[] buffer, int offset, int recordLength,
+			int recordCount)
+	{
+		BitSet ret = new BitSet(recordCount);
+		ret.set(0, recordCount);
+		return select(buffer, offset, recordLength, recordCount, ret);
+	}
+	/**
+	 * Refine an existing selection.  Only records whose bit is set in
+	 * <code>candidates</code> are tested, and bits are cleared for those
+	 * that fail.  Chaining calls gives the conjunction of several filters.
+	 * <br /><br />
+	 * @param buffer The <code>byte[]</code> holding the records.
+	 * @param offset The offset of the first record.
+	 * @param recordLength The length of each record.
+	 * @param recordCount The number of records.
+	 * @param candidates The selection to refine, updated in place.
+	 * @return <code>candidates</code>.
+	 * @throws IllegalArgumentException if the field does not lie within
+	 * the record, the buffer is too short, or a field sign nibble is a digit.
+	 */
+	public BitSet select(byte[] buffer, int offset, int recordLength,
+			int recordCount, BitSet candidates)
+	{
+		checkBatch(buffer, offset, recordLength, recordCount);
+		if (outcome == ALWAYS)
+			return candidates;
+		if (outcome == NEVER)
+		{
+			candidates.clear(0, recordCount);
+			return candidates;
+		}
+		for (int i = candidates.nextSetBit(0);
+			i >= 0 && i < recordCount;
+			i = candidates.nextSetBit(i + 1))
+		{
+			if (!matches(buffer, offset + i * recordLength))
+				candidates.clear(i);
+		}
+		return candidates;
+	}
+	/**
+	 * Private method to compare the field at <code>pos</code> with a
+	 * constant.
+	 * @return A negative, zero or positive value as the field is less than,
+	 * equal to or greater than the constant.
+	 */
+	private int compare(byte[] buffer, int pos, int k)
+	{
+		byte[] c = constants[k];
+		int last = fieldLength - 1;
+		int sign = PDUtils.signOf(buffer[pos + last]);
+		if (sign == 0)
+			throw new IllegalArgumentException("Invalid sign byte: 0x" +
+					Integer.toHexString(buffer[pos + last] & 0xff));
+		// Magnitude: BCD compares correctly as unsigned bytes.
+		int mag = 0;
+		for (int i = 0; i < last; i++)
+		{
+			int a = buffer[pos + i] & 0xff;
+			int b = c[i] & 0xff;
+			if (a != b)
+			{
+				mag = a < b ? -1 : 1;
+				break;
+			}
+		}
+		if (mag == 0)
+		{
+			int a = buffer[pos + last] & 0xf0;	// ignore sign nibble
+			int b = c[last] & 0xf0;
+			if (a != b)
+				mag = a < b ? -1 : 1;
+		}
+		//
+		boolean fieldNegative = sign < 0;
+		if (fieldNegative != negative[k])
+		{
+			if (mag == 0 && zero[k])	// -0 == +0
+				return 0;
+			return fieldNegative ? -1 : 1;
+		}
+		return fieldNegative ? -mag : mag;
+	}
+	/**
+	 * Private method to check batch arguments.
+	 */
+	private void checkBatch(byte[] buffer, int offset, int recordLength,
+			int recordCount)
+	{
+		if (offset < 0 || recordCount < 0 ||
+				fieldOffset + fieldLength > recordLength ||
+				(long)offset + (long)recordLength * recordCount > buffer.length)
+			throw new IllegalArgumentException("Bad value(s), offset: " +
+					offset + ", recordLength: " + recordLength +
+					", recordCount: " + recordCount);
+		return;
+	}
+	/**
+	 * Private method to bring a constant to the field scale.
+	 * @throws IllegalArgumentException if the constant is not numeric, or
+	 * requires rounding and <code>mode</code> is <code>UNNECESSARY</code>.
+	 */
+	private static BigDecimal toScale(String value, int scale, RoundingMode mode)
+	{
+		try {
+			return new BigDecimal(value).setScale(scale, mode);
+		} catch(NumberFormatException nfe) {
+			throw new IllegalArgumentException("constant not numeric, is: " +
+					value);
+		} catch(ArithmeticException ae) {
+			throw new IllegalArgumentException("constant not exact at scale " +
+					scale + ", is: " + value);
+		}
+	}
+	/**
+	 * Private method to check that a constant fits the width of the field.
+	 */
+	private static boolean fits(BigDecimal value, int fieldLength)
+	{
+		return value.unscaledValue().abs().toString().length() <=
+			2 * fieldLength - 1;
+	}
+	/**
+	 * Private method to pack a constant to the width of the field.
+	 * @throws IllegalArgumentException if the constant does not fit.
+	 */
+	private static byte[] packConstant(BigDecimal value, int fieldLength)
+	{
+		String digits = value.unscaledValue().abs().toString();
+		if (!fits(value, fieldLength))
+			throw new IllegalArgumentException("constant too large for field, is: " +
+					value.toPlainString());
+		byte[] packed = Packer.pack(digits);
+		byte[] ret = new byte[fieldLength];
+		System.arraycopy(packed, 0, ret, fieldLength - packed.length, packed.length);
+		if (value.signum() < 0)
+			PDUtils.setSign(ret, PDUtils.NEGATIVE);
+		return ret;
+	}
+} // end of class
@@ -0,0 +1,44 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+/**
+ * Marks a class as the Java view of a fixed length packed decimal record.
+ * <br /><br />
+ * At compile time {@link PackedRecordProcessor} generates a
+ * <code><em>Name</em>Mapper</code> class in the same package, with
+ * static <code>decode</code> and <code>encode</code> methods which move
+ * each {@link PackedField} between a record buffer and an instance.
+ * 
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface PackedRecord {
+	/**
+	 * The record length in bytes.
+	 */
+	int length();
+}
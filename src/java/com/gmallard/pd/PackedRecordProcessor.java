@@ -0,0 +1,256 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+/**
+ * This annotation processor generates record mappers for classes marked
+ * with {@link PackedRecord}.
+ * <br /><br />
+ * For a class <code>Foo</code> the generated class
+ * <code>FooMapper</code> contains straight line code, one statement per
+ * {@link PackedField}, calling {@link Unpacker#getLong(byte[], int, int)}
+ * and {@link Packer#pack(long, byte[], int, int)} with constant offsets
+ * and lengths.  <code>BigInteger</code> and <code>BigDecimal</code> fields
+ * wider than 18 digits use the wide value methods instead.  Fields with
+ * an even number of digits are first checked with
+ * {@link Packer#checkDigits(long, int)}, so <code>encode</code> rejects
+ * values wider than the declared <code>digits</code>.  No reflection
+ * or layout interpretation happens at run time.
+ * <br /><br />
+ * The processor is registered in
+ * <code>META-INF/services/javax.annotation.processing.Processor</code>.
+ * Up to JDK 22 that is enough for it to run whenever the library is on
+ * the compile class path.  From JDK 23 <code>javac</code> no longer runs
+ * class path processors by default, so pass
+ * <code>-processor com.gmallard.pd.PackedRecordProcessor</code> or
+ * <code>-proc:full</code>.
+ * 
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+@SupportedAnnotationTypes("com.gmallard.pd.PackedRecord")
+public final class PackedRecordProcessor extends AbstractProcessor {
+	/**
+	 * Largest number of digits handled through a <code>long</code>.
+	 */
+	private static final int MAX_LONG_DIGITS = 18;
+	/**
+	 * Largest number of digits handled through an <code>int</code>.
+	 */
+	private static final int MAX_INT_DIGITS = 9;
+	/**
+	 * Support whatever source level the compiler runs at.
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+	/**
+	 * Generate a mapper for each class marked with {@link PackedRecord}.
+	 */
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations,
+			RoundEnvironment roundEnv)
+	{
+		for (Element e : roundEnv.getElementsAnnotatedWith(PackedRecord.class))
+		{
+			if (e.getKind() != ElementKind.CLASS)
+			{
+				error(e, "@PackedRecord applies to classes only");
+				continue;
+			}
+			generate((TypeElement)e);
+		}
+		return true;
+	}
+	/**
+	 * Private method to generate the mapper for one class.
+	 */
+	private void generate(TypeElement type)
+	{
+		int recordLength = type.getAnnotation(PackedRecord.class).length();
+		String pkg = packageOf(type);
+		String typeName = type.getQualifiedName().toString();
+		String localName = pkg.length() == 0 ? typeName :
+			typeName.substring(pkg.length() + 1);
+		String mapperName = localName.replace('.', '_') + "Mapper";
+		//
+		StringBuilder decode = new StringBuilder();
+		StringBuilder encode = new StringBuilder();
+		boolean ok = true;
+		for (Element e : type.getEnclosedElements())
+		{
+			PackedField pf = e.getAnnotation(PackedField.class);
+			if (e.getKind() != ElementKind.FIELD || pf == null)
+				continue;
+			ok &= field(e, pf, recordLength, decode, encode);
+		}
+		if (!ok)
+			return;
+		//
+		String qualifiedMapper = pkg.length() == 0 ? mapperName :
+			pkg + "." + mapperName;
+		try {
+			PrintWriter out = new PrintWriter(processingEnv.getFiler()
+					.createSourceFile(qualifiedMapper, type).openWriter());
+			if (pkg.length() != 0)
+				out.println("package " + pkg + ";");
+			out.println("/**");
+			out.println(" * Packed record mapper for <code>" + localName + "</code>.");
+			out.println(" * Generated by " + getClass().getName() + ", do not edit.");
+			out.println(" */");
+			out.println("public final class " + mapperName + " {");
+			out.println("\tpublic static final int RECORD_LENGTH = " + recordLength + ";");
+			out.println("\tprivate " + mapperName + "() {}");
+			out.println("\tpublic static void decode(byte[] buffer, int offset, " +
+					typeName + " target) {");
+			out.print(decode);
+			out.println("\t}");
+			out.println("\tpublic static void encode(" + typeName +
+					" source, byte[] buffer, int offset) {");
+			out.print(encode);
+			out.println("\t}");
+			out.println("}");
+			out.close();
+		} catch(IOException ioe) {
+			error(type, "cannot write " + qualifiedMapper + ": " + ioe.getMessage());
+		}
+	}
+	/**
+	 * Private method to generate the decode and encode statements for
+	 * one field.
+	 * @return <code>false</code> if the field is in error.
+	 */
+	private boolean field(Element e, PackedField pf, int recordLength,
+			StringBuilder decode, StringBuilder encode)
+	{
+		Set<Modifier> mods = e.getModifiers();
+		if (mods.contains(Modifier.PRIVATE) || mods.contains(Modifier.STATIC) ||
+				mods.contains(Modifier.FINAL))
+		{
+			error(e, "@PackedField must not be private, static or final");
+			return false;
+		}
+		int numBytes = pf.digits() / 2 + 1;
+		if (pf.digits() <= 0 || pf.scale() < 0 || pf.scale() > pf.digits() ||
+				pf.offset() < 0 || pf.offset() + numBytes > recordLength)
+		{
+			error(e, "bad @PackedField, offset: " + pf.offset() + ", digits: " +
+					pf.digits() + ", scale: " + pf.scale() +
+					", record length: " + recordLength);
+			return false;
+		}
+		String kind = kindOf(e.asType());
+		int maxDigits = "int".equals(kind) ? MAX_INT_DIGITS :
+			"long".equals(kind) ? MAX_LONG_DIGITS : Integer.MAX_VALUE;
+		if (kind == null || pf.digits() > maxDigits)
+		{
+			error(e, "unsupported @PackedField type " + e.asType() +
+					" for " + pf.digits() + " digits");
+			return false;
+		}
+		String name = e.getSimpleName().toString();
+		String where = "buffer, offset + " + pf.offset() + ", " + numBytes;
+		String get = "com.gmallard.pd.Unpacker.getLong(" + where + ")";
+		String value;
+		if ("int".equals(kind))
+		{
+			get = "(int)" + get;
+			value = "source." + name;
+		} else if ("long".equals(kind)) {
+			value = "source." + name;
+		} else if (pf.digits() > MAX_LONG_DIGITS) {
+			boolean decimal = "BigDecimal".equals(kind);
+			get = decimal ?
+				"com.gmallard.pd.Unpacker.getBigDecimal(" + where + ", " +
+					pf.scale() + ")" :
+				"com.gmallard.pd.Unpacker.getBigInteger(" + where + ")";
+			value = decimal ?
+				"source." + name + ".movePointRight(" + pf.scale() +
+					").toBigIntegerExact()" :
+				"source." + name;
+		} else if ("BigInteger".equals(kind)) {
+			get = "java.math.BigInteger.valueOf(" + get + ")";
+			value = "source." + name + ".longValueExact()";
+		} else {
+			get = "java.math.BigDecimal.valueOf(" + get + ", " + pf.scale() + ")";
+			value = "source." + name + ".movePointRight(" + pf.scale() +
+				").longValueExact()";
+		}
+		if ((pf.digits() & 1) == 0)		// the field holds one digit more
+			value = "com.gmallard.pd.Packer.checkDigits(" + value + ", " +
+				pf.digits() + ")";
+		String put = pf.signed() ? "pack" : "packUnsigned";
+		decode.append("\t\ttarget." + name + " = " + get + ";\n");
+		encode.append("\t\tcom.gmallard.pd.Packer." + put + "(" + value + ", " +
+				where + ");\n");
+		return true;
+	}
+	/**
+	 * Private method to classify a field type.
+	 * @return <code>int</code>, <code>long</code>, <code>BigInteger</code>,
+	 * <code>BigDecimal</code>, or <code>null</code> if unsupported.
+	 */
+	private static String kindOf(TypeMirror tm)
+	{
+		if (tm.getKind() == TypeKind.INT)
+			return "int";
+		if (tm.getKind() == TypeKind.LONG)
+			return "long";
+		String s = tm.toString();
+		if ("java.math.BigInteger".equals(s))
+			return "BigInteger";
+		if ("java.math.BigDecimal".equals(s))
+			return "BigDecimal";
+		return null;
+	}
+	/**
+	 * Private method to find the package name of a type.
+	 */
+	private static String packageOf(Element e)
+	{
+		while (e.getKind() != ElementKind.PACKAGE)
+			e = e.getEnclosingElement();
+		return ((PackageElement)e).getQualifiedName().toString();
+	}
+	/**
+	 * Private method to report a compile error.
+	 */
+	private void error(Element e, String msg)
+	{
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, msg, e);
+	}
+} // end of class
@@ -19,7 +19,9 @@ This file is part of the Java packed decimal utilities project.
    along with the Java packed decimal utilities project.  
    If not, see <http://www.gnu.org/licenses/>.
 */
+import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.util.Map;
 import java.util.HashMap;
 /**
@@ -27,7 +29,12 @@ import java.util.HashMap;
  * byte arrays in the format of classical packed data.
  * <br /><br />
  * Input values are assumed to be positive.  An exception will be thrown
- * when this restriction is violated.
+ * when this restriction is violated.  The exception is the methods which
+ * pack into a field of a caller supplied <code>byte[]</code>:
+ * <code>pack</code> and <code>packDouble</code> accept signed values,
+ * <code>packUnsigned</code> rejects negative values and writes an 0x0f
+ * sign.  The <code>long</code> methods, and <code>packDouble</code> on
+ * its <code>double</code> path, do not allocate.
  * 
  * @author Guy Allard
  * @since 2008.07.18
@@ -54,6 +61,40 @@ public final class Packer {
 		xlateTbl.put("8", new Byte((byte)0x08));
 		xlateTbl.put("9", new Byte((byte)0x09));
 	}
+	/**
+	 * Powers of ten which fit in a <code>long</code>.
+	 */
+	static final long[] POW10 = {
+		1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+		100000000L, 1000000000L, 10000000000L, 100000000000L,
+		1000000000000L, 10000000000000L, 100000000000000L,
+		1000000000000000L, 10000000000000000L, 100000000000000000L,
+		1000000000000000000L,
+	};
+	/**
+	 * Limit of the <code>double</code> fast path in
+	 * {@link #packDouble(double, int, RoundingMode, byte[], int, int)}.
+	 */
+	private static final double TWO_50 = 1125899906842624.0;
+	/**
+	 * Veltkamp splitting constant, 2<sup>27</sup> + 1.
+	 */
+	private static final double SPLIT = 134217729.0;
+	/**
+	 * Powers of ten used to split wide values into 18 digit chunks:
+	 * <code>CHUNK_POW10[k]</code> is 10<sup>18 * 2<sup>k</sup></sup>.
+	 */
+	static final BigInteger[] CHUNK_POW10 = new BigInteger[8];
+	static
+	{
+		CHUNK_POW10[0] = BigInteger.valueOf(POW10[18]);
+		for (int k = 1; k < CHUNK_POW10.length; k++)
+			CHUNK_POW10[k] = CHUNK_POW10[k-1].multiply(CHUNK_POW10[k-1]);
+	}
+	/**
+	 * Number of digits in a chunk.
+	 */
+	static final int CHUNK_DIGITS = 18;
 	
 	/**
 	 * Convert a <code>String</code> representation of a number
@@ -114,6 +155,43 @@ public final class Packer {
 	{
 		return pack("" + anumber);
 	}
+	/**
+	 * Pack a signed <code>long</code> value into a field of a caller
+	 * supplied <code>byte[]</code>, with a preferred sign nibble (0x0c or
+	 * 0x0d).  Nothing is allocated.
+	 * <br /><br />
+	 * @param anumber The value to convert.
+	 * @param dest The <code>byte[]</code> to receive the packed value.
+	 * @param offset The offset of the first byte of the field.
+	 * @param numBytes The length of the field.  The value is right
+	 * justified and padded with leading zeroes.
+	 * @throws IllegalArgumentException if the value does not fit in
+	 * <code>numBytes</code>, or <code>offset</code> is less than 0 or
+	 * <code>numBytes</code> is less than or equal to 0.
+	 */
+	public static void pack(long anumber, byte[] dest, int offset, int numBytes)
+	{
+		pack(anumber, dest, offset, numBytes,
+				anumber < 0 ? PDUtils.NEGATIVE : PDUtils.POSITIVE);
+	}
+	/**
+	 * Pack a non-negative <code>long</code> value into a field of a caller
+	 * supplied <code>byte[]</code>, with an unsigned (0x0f) sign nibble.
+	 * Nothing is allocated.
+	 * <br /><br />
+	 * @param anumber The value to convert.
+	 * @param dest The <code>byte[]</code> to receive the packed value.
+	 * @param offset The offset of the first byte of the field.
+	 * @param numBytes The length of the field.
+	 * @throws IllegalArgumentException if the value is negative.
+	 * @throws @see {@link #pack(long, byte[], int, int)}
+	 */
+	public static void packUnsigned(long anumber, byte[] dest, int offset, int numBytes)
+	{
+		if (anumber < 0)
+			throw new IllegalArgumentException("value negative, is: " + anumber);
+		pack(anumber, dest, offset, numBytes, PDUtils.UNSIGNED);
+	}
 	/**
 	 * Convenience method for converting <code>BigInteger</code> values to a
 	 * <code>byte[]</code>. 
@@ -125,6 +203,333 @@ public final class Packer {
 	{
 		return pack(anumber.toString());
 	}
+	/**
+	 * Pack a signed <code>BigInteger</code> value into a field of a caller
+	 * supplied <code>byte[]</code>, with a preferred sign nibble (0x0c or
+	 * 0x0d).
+	 * <br /><br />
+	 * Wide values are split into 18 digit <code>long</code> chunks by
+	 * repeated division by 10<sup>18 * 2<sup>k</sup></sup>, and each chunk
+	 * is packed directly.  No <code>String</code> is created.
+	 * <br /><br />
+	 * @param anumber The value to convert.
+	 * @param dest The <code>byte[]</code> to receive the packed value.
+	 * @param offset The offset of the first byte of the field.
+	 * @param numBytes The length of the field.
+	 * @throws @see {@link #pack(long, byte[], int, int)}
+	 */
+	public static void pack(BigInteger anumber, byte[] dest, int offset, int numBytes)
+	{
+		pack(anumber, dest, offset, numBytes,
+				anumber.signum() < 0 ? PDUtils.NEGATIVE : PDUtils.POSITIVE);
+	}
+	/**
+	 * Pack a non-negative <code>BigInteger</code> value into a field of a
+	 * caller supplied <code>byte[]</code>, with an unsigned (0x0f) sign
+	 * nibble.
+	 * @param anumber The value to convert.
+	 * @param dest The <code>byte[]</code> to receive the packed value.
+	 * @param offset The offset of the first byte of the field.
+	 * @param numBytes The length of the field.
+	 * @throws IllegalArgumentException if the value is negative.
+	 * @throws @see {@link #pack(BigInteger, byte[], int, int)}
+	 */
+	public static void packUnsigned(BigInteger anumber, byte[] dest, int offset,
+			int numBytes)
+	{
+		if (anumber.signum() < 0)
+			throw new IllegalArgumentException("value negative, is: " + anumber);
+		pack(anumber, dest, offset, numBytes, PDUtils.UNSIGNED);
+	}
+	/**
+	 * Check that a <code>long</code> value has no more than a given number
+	 * of digits.  A field of <code>numBytes</code> bytes always holds
+	 * <code>2 * numBytes - 1</code> digits, so the pack methods cannot
+	 * enforce a declared even digit count, e.g. a 4 digit field held in
+	 * 3 bytes.  Call this first in that case.
+	 * <br /><br />
+	 * @param anumber The value to check.
+	 * @param digits The declared number of digits.
+	 * @return <code>anumber</code>.
+	 * @throws IllegalArgumentException if <code>digits</code> is not
+	 * positive, or the magnitude of <code>anumber</code> is
+	 * 10<sup>digits</sup> or more.
+	 */
+	public static long checkDigits(long anumber, int digits)
+	{
+		if (digits <= 0)
+			throw new IllegalArgumentException("digits not positive, is: " + digits);
+		if (digits < POW10.length &&
+				(anumber >= POW10[digits] || anumber <= -POW10[digits]))
+			throw new IllegalArgumentException("value too large for " +
+					digits + " digits, is: " + anumber);
+		return anumber;
+	}
+	/**
+	 * Check that a <code>BigInteger</code> value has no more than a given
+	 * number of digits.
+	 * @param anumber The value to check.
+	 * @param digits The declared number of digits.
+	 * @return <code>anumber</code>.
+	 * @throws @see {@link #checkDigits(long, int)}
+	 */
+	public static BigInteger checkDigits(BigInteger anumber, int digits)
+	{
+		if (anumber.bitLength() < 64)
+		{
+			checkDigits(anumber.longValue(), digits);
+			return anumber;
+		}
+		if (digits < POW10.length ||
+				anumber.abs().compareTo(BigInteger.TEN.pow(digits)) >= 0)
+			throw new IllegalArgumentException("value too large for " +
+					digits + " digits, is: " + anumber);
+		return anumber;
+	}
+	/**
+	 * Convert a <code>double</code> value to a packed decimal
+	 * <code>byte[]</code> of a given number of digits and scale.
+	 * @param anumber The value to convert.
+	 * @param digits The number of digits, the result is
+	 * <code>digits / 2 + 1</code> bytes long.
+	 * @param scale The number of implied decimal places.
+	 * @param mode How to round digits beyond <code>scale</code>.
+	 * @return A <code>byte[]</code> containing the packed decimal
+	 * representation of <code>anumber</code>.
+	 * @throws IllegalArgumentException if the rounded value has more than
+	 * <code>digits</code> digits.  Otherwise
+	 * @see {@link #packDouble(double, int, RoundingMode, byte[], int, int)}
+	 */
+	public static byte[] packDouble(double anumber, int digits, int scale,
+			RoundingMode mode)
+	{
+		if (digits <= 0)
+			throw new IllegalArgumentException("digits not positive, is: " + digits);
+		byte[] ret = new byte[digits / 2 + 1];
+		packDouble(anumber, scale, mode, ret, 0, ret.length);
+		// An even digit count leaves a spare high order nibble.
+		if ((digits & 1) == 0 && (ret[0] & 0xf0) != 0)
+			throw new IllegalArgumentException("value too large for " +
+					digits + " digits, is: " + anumber);
+		return ret;
+	}
+	/**
+	 * Convert a <code>double</code> value into a packed decimal field of a
+	 * caller supplied <code>byte[]</code>, with a preferred sign.
+	 * <br /><br />
+	 * The result is the exact binary value of <code>anumber</code>
+	 * rounded to <code>scale</code> decimal places, as
+	 * <code>new BigDecimal(anumber).setScale(scale, mode)</code> gives.
+	 * When the scaled value is below 2<sup>50</sup> and <code>scale</code> is
+	 * at most 18 this is done in <code>double</code> arithmetic: the scaled
+	 * value and its exact rounding error are found by an error free
+	 * (Dekker) product, and the rounding decision is made from both.
+	 * Other values take a <code>BigDecimal</code> path.
+	 * <br /><br />
+	 * @param anumber The value to convert.
+	 * @param scale The number of implied decimal places.
+	 * @param mode How to round digits beyond <code>scale</code>.
+	 * @param dest The <code>byte[]</code> to receive the packed value.
+	 * @param offset The offset of the first byte of the field.
+	 * @param numBytes The length of the field.
+	 * @throws IllegalArgumentException if <code>anumber</code> is not finite,
+	 * <code>scale</code> is negative, rounding is necessary and
+	 * <code>mode</code> is <code>UNNECESSARY</code>, or the result does not fit.
+	 */
+	public static void packDouble(double anumber, int scale, RoundingMode mode,
+			byte[] dest, int offset, int numBytes)
+	{
+		if (Double.isNaN(anumber) || Double.isInfinite(anumber) || scale < 0)
+			throw new IllegalArgumentException("Bad value(s), anumber: " +
+					anumber + ", scale: " + scale);
+		boolean negative = anumber < 0;
+		double a = Math.abs(anumber);
+		if (scale < POW10.length && a * POW10[scale] < TWO_50)
+		{
+			long n = roundScaled(a, scale, mode, negative);
+			pack(n, dest, offset, numBytes,
+					negative && n != 0 ? PDUtils.NEGATIVE : PDUtils.POSITIVE);
+			return;
+		}
+		BigDecimal bd;
+		try {
+			bd = new BigDecimal(anumber).setScale(scale, mode);
+		} catch(ArithmeticException ae) {
+			throw new IllegalArgumentException("rounding necessary for: " + anumber);
+		}
+		pack(bd.unscaledValue(), dest, offset, numBytes,
+				negative && bd.signum() != 0 ? PDUtils.NEGATIVE : PDUtils.POSITIVE);
+	}
+	/**
+	 * Private method to round <code>a * 10^scale</code> to a whole number,
+	 * for non-negative <code>a</code> with a scaled value below
+	 * 2<sup>50</sup>.
+	 */
+	private static long roundScaled(double a, int scale, RoundingMode mode,
+			boolean negative)
+	{
+		double p = POW10[scale];
+		// Error free product: a * p == x + e exactly.
+		double x = a * p;
+		double ah = SPLIT * a;
+		ah = ah - (ah - a);
+		double al = a - ah;
+		double ph = SPLIT * p;
+		ph = ph - (ph - p);
+		double pl = p - ph;
+		double e = ((ah * ph - x) + ah * pl + al * ph) + al * pl;
+		//
+		double fl = Math.floor(x);
+		double frac = x - fl;			// exact
+		int cmpHalf;					// fraction compared with one half
+		if (frac == 0 && e < 0)
+		{
+			fl -= 1;					// true fraction is 1 + e
+			cmpHalf = 1;
+		} else {
+			double h = frac - 0.5;		// exact, or clearly negative
+			cmpHalf = h != 0 ? (h < 0 ? -1 : 1) : (e < 0 ? -1 : e > 0 ? 1 : 0);
+		}
+		boolean inexact = frac != 0 || e != 0;
+		long n = (long)fl;
+		boolean up;
+		switch (mode) {
+			case UP:
+				up = inexact;
+				break;
+			case DOWN:
+				up = false;
+				break;
+			case CEILING:
+				up = inexact && !negative;
+				break;
+			case FLOOR:
+				up = inexact && negative;
+				break;
+			case HALF_UP:
+				up = cmpHalf >= 0 && inexact;
+				break;
+			case HALF_DOWN:
+				up = cmpHalf > 0;
+				break;
+			case HALF_EVEN:
+				up = cmpHalf > 0 || (cmpHalf == 0 && (n & 1) != 0);
+				break;
+			default:	// UNNECESSARY
+				if (inexact)
+					throw new IllegalArgumentException("rounding necessary for: " +
+							(negative ? -a : a));
+				up = false;
+				break;
+		}
+		return up ? n + 1 : n;
+	}
+	/**
+	 * Private method to pack a <code>BigInteger</code> with a given sign
+	 * nibble.
+	 */
+	private static void pack(BigInteger anumber, byte[] dest, int offset,
+			int numBytes, int sign)
+	{
+		if (anumber.bitLength() < 64)
+		{
+			pack(anumber.longValue(), dest, offset, numBytes, sign);
+			return;
+		}
+		if (offset < 0 || numBytes <= 0)
+			throw new IllegalArgumentException("Bad value(s), offset: " +
+					offset + ", numBytes: " + numBytes);
+		int digits = 2 * numBytes - 1;
+		int chunks = (digits + CHUNK_DIGITS - 1) / CHUNK_DIGITS;
+		int level = 0;
+		while ((1 << level) < chunks)
+			level++;
+		if (level > CHUNK_POW10.length)
+			throw new IllegalArgumentException("numBytes too large, is: " +
+					numBytes);
+		long[] parts = new long[1 << level];
+		if (!split(anumber.abs(), level - 1, parts, 0))
+			throw new IllegalArgumentException("value too large for " +
+					numBytes + " bytes, is: " + anumber);
+		int topDigits = digits - CHUNK_DIGITS * (chunks - 1);
+		for (int i = chunks; i < parts.length; i++)
+		{
+			if (parts[i] != 0)
+				throw new IllegalArgumentException("value too large for " +
+						numBytes + " bytes, is: " + anumber);
+		}
+		if (parts[chunks - 1] >= POW10[topDigits])
+			throw new IllegalArgumentException("value too large for " +
+					numBytes + " bytes, is: " + anumber);
+		// All checks passed, write the field.
+		int last = offset + numBytes - 1;
+		for (int i = offset; i <= last; i++)
+			dest[i] = 0;
+		for (int i = 0; i < chunks; i++)
+		{
+			long work = parts[i];
+			for (int p = i * CHUNK_DIGITS; work != 0; p++, work /= 10)
+			{
+				int pos = last - ((p + 1) >> 1);
+				int d = (int)(work % 10);
+				dest[pos] |= (p & 1) == 0 ? d << 4 : d;
+			}
+		}
+		dest[last] |= sign;
+	}
+	/**
+	 * Private method to split a non-negative value into 18 digit chunks,
+	 * least significant first.
+	 * @return <code>false</code> if the value needs more than
+	 * 2<sup>level + 1</sup> chunks.
+	 */
+	private static boolean split(BigInteger value, int level, long[] parts, int index)
+	{
+		if (level < 0)
+		{
+			if (value.bitLength() >= 63 || value.longValue() >= POW10[CHUNK_DIGITS])
+				return false;
+			parts[index] = value.longValue();
+			return true;
+		}
+		if (value.bitLength() < 63 && value.longValue() < POW10[CHUNK_DIGITS])
+		{
+			parts[index] = value.longValue();	// Remaining chunks stay zero
+			return true;
+		}
+		BigInteger[] qr = value.divideAndRemainder(CHUNK_POW10[level]);
+		return split(qr[1], level - 1, parts, index) &&
+			split(qr[0], level - 1, parts, index + (1 << level));
+	}
+	/**
+	 * Private method to pack a <code>long</code> with a given sign nibble.
+	 * The magnitude is developed as a negative value so that
+	 * <code>Long.MIN_VALUE</code> is handled.
+	 */
+	private static void pack(long anumber, byte[] dest, int offset, int numBytes,
+			int sign)
+	{
+		if (offset < 0 || numBytes <= 0)
+			throw new IllegalArgumentException("Bad value(s), offset: " +
+					offset + ", numBytes: " + numBytes);
+		int digits = 2 * numBytes - 1;
+		if (digits < POW10.length &&
+				(anumber >= POW10[digits] || anumber <= -POW10[digits]))
+			throw new IllegalArgumentException("value too large for " +
+					numBytes + " bytes, is: " + anumber);
+		long work = anumber < 0 ? anumber : -anumber;
+		int pos = offset + numBytes - 1;
+		dest[pos] = (byte)((-(work % 10) << 4) | sign);
+		work /= 10;
+		for (pos--; pos >= offset; pos--)
+		{
+			int lo = (int)-(work % 10);
+			work /= 10;
+			int hi = (int)-(work % 10);
+			work /= 10;
+			dest[pos] = (byte)((hi << 4) | lo);
+		}
+	}
 	/**
 	 * Private method to check if a <code>String</code> is numeric.
 	 * @param astring The <code>String</code> to check.
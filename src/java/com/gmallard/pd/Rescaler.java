@@ -0,0 +1,319 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.math.RoundingMode;
+import java.util.BitSet;
+/**
+ * This class converts packed decimal fields from one length and scale
+ * to another without unpacking them, in the manner of the SRP (shift
+ * and round decimal) instruction.
+ * <br /><br />
+ * Digits are moved directly from the source bytes to the destination
+ * bytes, shifted by whole nibbles to move the decimal point.  Digits
+ * shifted off the right are rounded according to a
+ * <code>RoundingMode</code>, digits which do not fit on the left are
+ * reported as decimal overflow.
+ * <br /><br />
+ * The destination is always written with a preferred sign (0x0c or 0x0d),
+ * and a zero result is always positive, including the zero digits left
+ * when rounding overflows.  Source and destination fields
+ * must not overlap.
+ * <hr />
+ * This class is thread safe.
+ * <hr />
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public final class Rescaler {
+	/**
+	 * Source field length in bytes.
+	 */
+	private final int srcLength;
+	/**
+	 * Number of digits in the source field.
+	 */
+	private final int srcDigits;
+	/**
+	 * Destination field length in bytes.
+	 */
+	private final int destLength;
+	/**
+	 * Number of digits in the destination field.
+	 */
+	private final int destDigits;
+	/**
+	 * Index of the source digit which lands in destination digit 0.
+	 * May be negative, in which case leading zeroes are supplied.
+	 */
+	private final int delta;
+	/**
+	 * Number of source digits shifted off the right, 0 when widening.
+	 */
+	private final int dropped;
+	/**
+	 * The rounding mode for dropped digits.
+	 */
+	private final RoundingMode mode;
+	/**
+	 * Create a rescaler for one source/destination field layout.
+	 * <br /><br />
+	 * @param srcLength The source field length in bytes.
+	 * @param srcScale The number of implied decimal places in the source.
+	 * @param destLength The destination field length in bytes.
+	 * @param destScale The number of implied decimal places in the
+	 * destination.
+	 * @param mode The rounding applied when <code>destScale</code> is less
+	 * than <code>srcScale</code>.  <code>HALF_UP</code> matches SRP,
+	 * <code>DOWN</code> truncates.
+	 * @throws IllegalArgumentException if a length is not positive or a
+	 * scale is negative.
+	 */
+	public Rescaler(int srcLength, int srcScale, int destLength, int destScale,
+			RoundingMode mode)
+	{
+		if (srcLength <= 0 || destLength <= 0 ||
+				srcScale < 0 || destScale < 0 || mode == null)
+			throw new IllegalArgumentException("Bad value(s), srcLength: " +
+					srcLength + ", srcScale: " + srcScale +
+					", destLength: " + destLength + ", destScale: " + destScale +
+					", mode: " + mode);
+		this.srcLength = srcLength;
+		this.destLength = destLength;
+		this.mode = mode;
+		srcDigits = 2 * srcLength - 1;
+		destDigits = 2 * destLength - 1;
+		int shift = destScale - srcScale;
+		delta = srcDigits - destDigits + shift;
+		dropped = shift < 0 ? -shift : 0;
+	}
+	/**
+	 * Rescale a single field.
+	 * <br /><br />
+	 * @param src The <code>byte[]</code> holding the source field.
+	 * @param srcOffset The offset of the source field.
+	 * @param dest The <code>byte[]</code> to receive the result.
+	 * @param destOffset The offset of the destination field.
+	 * @return <code>true</code> if the result fits, <code>false</code> on
+	 * decimal overflow.  On overflow the destination holds the low order
+	 * digits of the result, as SRP does.
+	 * @throws IllegalArgumentException if a field does not lie within its
+	 * buffer, the source contains a non-numeric digit or an invalid sign
+	 * nibble, or the rounding mode is <code>UNNECESSARY</code> and rounding
+	 * is required.
+	 */
+	public boolean rescale(byte[] src, int srcOffset, byte[] dest, int destOffset)
+	{
+		if (srcOffset < 0 || srcOffset > src.length - srcLength ||
+				destOffset < 0 || destOffset > dest.length - destLength)
+			throw new IllegalArgumentException("Bad value(s), srcOffset: " +
+					srcOffset + ", src length: " + src.length +
+					", destOffset: " + destOffset + ", dest length: " + dest.length);
+		return convert(src, srcOffset, dest, destOffset);
+	}
+	/**
+	 * Private method to rescale a single field, arguments already checked.
+	 */
+	private boolean convert(byte[] src, int srcOffset, byte[] dest, int destOffset)
+	{
+		int signByte = src[srcOffset + srcLength - 1];
+		int sign = PDUtils.signOf(signByte);
+		if (sign == 0)
+			throw new IllegalArgumentException("Invalid sign byte: 0x" +
+					Integer.toHexString(signByte & 0xff));
+		boolean negative = sign < 0;
+		// Leading source digits with no place in the destination.
+		boolean overflow = false;
+		for (int i = 0; i < delta && i < srcDigits; i++)
+		{
+			if (digit(src, srcOffset, i) != 0)
+				overflow = true;
+		}
+		// Move the digits which are kept, a byte at a time.
+		int nonZero = 0;
+		for (int b = 0; b < destLength; b++)
+		{
+			int j = 2 * b;
+			int hi = keptDigit(src, srcOffset, j + delta);
+			int lo = j + 1 < destDigits ?
+				keptDigit(src, srcOffset, j + 1 + delta) : 0;
+			nonZero |= hi | lo;
+			dest[destOffset + b] = (byte)((hi << 4) | lo);
+		}
+		// Round on the digits shifted off the right.
+		if (dropped > 0 && roundUp(src, srcOffset, dest, destOffset, negative))
+		{
+			// A carry off the left leaves zero digits, which stay positive.
+			nonZero = 1;
+			if (increment(dest, destOffset))
+			{
+				overflow = true;
+				nonZero = 0;
+			}
+		}
+		int last = destOffset + destLength - 1;
+		int destSign = (negative && nonZero != 0) ?
+			PDUtils.NEGATIVE : PDUtils.POSITIVE;
+		dest[last] = (byte)((dest[last] & 0xf0) | destSign);
+		return !overflow;
+	}
+	/**
+	 * Rescale the same field in a batch of fixed length records.
+	 * <br /><br />
+	 * @param src The <code>byte[]</code> holding the source records.
+	 * @param srcOffset The offset of the source field in the first record.
+	 * @param srcRecordLength The length of each source record.
+	 * @param dest The <code>byte[]</code> holding the destination records.
+	 * @param destOffset The offset of the destination field in the
+	 * first record.
+	 * @param destRecordLength The length of each destination record.
+	 * @param recordCount The number of records.
+	 * @param overflows If not <code>null</code>, bit <em>i</em> is set
+	 * when record <em>i</em> overflows.
+	 * @return The number of records which overflowed.
+	 * @throws IllegalArgumentException if a record is shorter than its
+	 * field, or the records do not lie within their buffers.  Otherwise
+	 * @see {@link #rescale(byte[], int, byte[], int)}
+	 */
+	public int rescaleAll(byte[] src, int srcOffset, int srcRecordLength,
+			byte[] dest, int destOffset, int destRecordLength,
+			int recordCount, BitSet overflows)
+	{
+		if (srcOffset < 0 || destOffset < 0 || recordCount < 0 ||
+				srcRecordLength < srcLength || destRecordLength < destLength ||
+				(recordCount > 0 &&
+					((long)srcOffset + (long)srcRecordLength * (recordCount - 1) +
+						srcLength > src.length ||
+					(long)destOffset + (long)destRecordLength * (recordCount - 1) +
+						destLength > dest.length)))
+			throw new IllegalArgumentException("Bad value(s), srcOffset: " +
+					srcOffset + ", srcRecordLength: " + srcRecordLength +
+					", destOffset: " + destOffset +
+					", destRecordLength: " + destRecordLength +
+					", recordCount: " + recordCount);
+		int ret = 0;
+		for (int i = 0; i < recordCount; i++)
+		{
+			if (!convert(src, srcOffset + i * srcRecordLength,
+					dest, destOffset + i * destRecordLength))
+			{
+				ret++;
+				if (overflows != null)
+					overflows.set(i);
+			}
+		}
+		return ret;
+	}
+	/**
+	 * Convenience method to rescale a single field.
+	 * @return <code>true</code> if the result fits.
+	 * @see #Rescaler(int, int, int, int, RoundingMode)
+	 * @see #rescale(byte[], int, byte[], int)
+	 */
+	public static boolean rescale(byte[] src, int srcOffset, int srcLength,
+			int srcScale, byte[] dest, int destOffset, int destLength,
+			int destScale, RoundingMode mode)
+	{
+		return new Rescaler(srcLength, srcScale, destLength, destScale, mode)
+			.rescale(src, srcOffset, dest, destOffset);
+	}
+	/**
+	 * Private method to fetch source digit <code>i</code>, or zero if
+	 * <code>i</code> lies outside the kept range.
+	 */
+	private int keptDigit(byte[] src, int srcOffset, int i)
+	{
+		if (i < 0 || i >= srcDigits)
+			return 0;
+		return digit(src, srcOffset, i);
+	}
+	/**
+	 * Private method to fetch source digit <code>i</code>, counting from
+	 * the most significant digit.
+	 * @throws IllegalArgumentException if the nibble is not a digit.
+	 */
+	private static int digit(byte[] src, int srcOffset, int i)
+	{
+		int b = src[srcOffset + (i >> 1)];
+		int ret = (i & 1) == 0 ? (b >> 4) & 0x0f : b & 0x0f;
+		if (ret > 9)
+			throw new IllegalArgumentException("Invalid digit nibble: 0x" +
+					Integer.toHexString(ret));
+		return ret;
+	}
+	/**
+	 * Private method to decide whether the kept digits are rounded up.
+	 */
+	private boolean roundUp(byte[] src, int srcOffset, byte[] dest,
+			int destOffset, boolean negative)
+	{
+		int first = srcDigits - dropped;
+		int lead = keptDigit(src, srcOffset, first);
+		boolean rest = false;
+		for (int i = Math.max(first + 1, 0); i < srcDigits; i++)
+		{
+			if (digit(src, srcOffset, i) != 0)
+				rest = true;
+		}
+		boolean inexact = lead != 0 || rest;
+		switch (mode) {
+			case UP:
+				return inexact;
+			case DOWN:
+				return false;
+			case CEILING:
+				return inexact && !negative;
+			case FLOOR:
+				return inexact && negative;
+			case HALF_UP:
+				return lead >= 5;
+			case HALF_DOWN:
+				return lead > 5 || (lead == 5 && rest);
+			case HALF_EVEN:
+				int lastKept = (dest[destOffset + destLength - 1] >> 4) & 0x0f;
+				return lead > 5 || (lead == 5 && (rest || (lastKept & 1) != 0));
+			default:	// UNNECESSARY
+				if (inexact)
+					throw new IllegalArgumentException("Rounding necessary");
+				return false;
+		}
+	}
+	/**
+	 * Private method to add one to the destination digits.
+	 * @return <code>true</code> if the carry ran off the left.
+	 */
+	private boolean increment(byte[] dest, int destOffset)
+	{
+		for (int j = destDigits - 1; j >= 0; j--)
+		{
+			int pos = destOffset + (j >> 1);
+			int b = dest[pos] & 0xff;
+			boolean high = (j & 1) == 0;
+			int d = high ? b >> 4 : b & 0x0f;
+			if (d < 9)
+			{
+				dest[pos] = (byte)(high ? b + 0x10 : b + 1);
+				return false;
+			}
+			dest[pos] = (byte)(high ? b & 0x0f : b & 0xf0);
+		}
+		return true;
+	}
+} // end of class
@@ -0,0 +1,230 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+/**
+ * This class rewrites the sign nibbles of packed decimal fields in a
+ * buffer of fixed length records to the preferred signs: 0x0c for
+ * positive and 0x0d for negative.
+ * <br /><br />
+ * 0x0a, 0x0e and 0x0f become 0x0c, 0x0b becomes 0x0d.  A sign nibble
+ * which is a digit is counted as invalid and left alone, nothing is
+ * thrown.  Each sign byte is rewritten by a single table lookup and
+ * nothing is allocated per field.
+ * <hr />
+ * This class is thread safe.
+ * <hr />
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public final class SignNormalizer {
+	/**
+	 * Rewritten value of every possible sign byte.
+	 */
+	private static final byte[] PREFERRED = new byte[256];
+	static
+	{
+		for (int b = 0; b < 256; b++)
+		{
+			int sign = PDUtils.signOf(b);
+			int nibble = sign > 0 ? PDUtils.POSITIVE :
+				sign < 0 ? PDUtils.NEGATIVE : b & 0x0f;
+			PREFERRED[b] = (byte)((b & 0xf0) | nibble);
+		}
+	}
+	/**
+	 * Records per task in the parallel variant.
+	 */
+	private static final int PARALLEL_THRESHOLD = 8192;
+	/**
+	 * Counts of the sign nibbles seen by a normalisation.
+	 */
+	public static final class Counts {
+		/**
+		 * Count of each original sign nibble.
+		 */
+		private final long[] bySign = new long[16];
+		/**
+		 * Private constructor, counts come from the normalise methods.
+		 */
+		private Counts()
+		{
+		}
+		/**
+		 * Return the number of fields which had a given sign nibble.
+		 * @param sign The original sign nibble, 0x00 to 0x0f.
+		 * @return The count.
+		 */
+		public long getCount(int sign)
+		{
+			return bySign[sign & 0x0f];
+		}
+		/**
+		 * Return the number of fields whose sign was rewritten.
+		 * @return The count of 0x0a, 0x0b, 0x0e and 0x0f signs.
+		 */
+		public long getRewritten()
+		{
+			return bySign[0x0a] + bySign[0x0b] + bySign[0x0e] + bySign[0x0f];
+		}
+		/**
+		 * Return the number of fields which already had a preferred sign.
+		 * @return The count of 0x0c and 0x0d signs.
+		 */
+		public long getUnchanged()
+		{
+			return bySign[0x0c] + bySign[0x0d];
+		}
+		/**
+		 * Return the number of fields with a digit in the sign nibble.
+		 * These are left alone.
+		 * @return The count of invalid signs.
+		 */
+		public long getInvalid()
+		{
+			long ret = 0;
+			for (int i = 0; i <= 9; i++)
+				ret += bySign[i];
+			return ret;
+		}
+		/**
+		 * Private method to add another set of counts to this one.
+		 */
+		private Counts add(Counts other)
+		{
+			for (int i = 0; i < bySign.length; i++)
+				bySign[i] += other.bySign[i];
+			return this;
+		}
+	}
+	/**
+	 * Normalise the signs of every packed field in a batch of records.
+	 * <br /><br />
+	 * @param buffer The <code>byte[]</code> holding the records.
+	 * @param offset The offset of the first record.
+	 * @param recordLength The length of each record.
+	 * @param recordCount The number of records.
+	 * @param fieldEnds The offset within a record of the last (sign) byte
+	 * of each packed field.
+	 * @return Counts of the original sign nibbles.
+	 * @throws IllegalArgumentException if a field end lies outside the
+	 * record, or the buffer is too short.
+	 */
+	public static Counts normalize(byte[] buffer, int offset, int recordLength,
+			int recordCount, int[] fieldEnds)
+	{
+		check(buffer, offset, recordLength, recordCount, fieldEnds);
+		Counts ret = new Counts();
+		normalize(buffer, offset, recordLength, 0, recordCount, fieldEnds,
+				ret.bySign);
+		return ret;
+	}
+	/**
+	 * Normalise the signs of every packed field in a batch of records,
+	 * splitting large batches across the common fork/join pool.
+	 * @return Counts of the original sign nibbles.
+	 * @see #normalize(byte[], int, int, int, int[])
+	 */
+	public static Counts normalizeParallel(byte[] buffer, int offset,
+			int recordLength, int recordCount, int[] fieldEnds)
+	{
+		check(buffer, offset, recordLength, recordCount, fieldEnds);
+		return ForkJoinPool.commonPool().invoke(new Task(buffer, offset,
+				recordLength, 0, recordCount, fieldEnds));
+	}
+	/**
+	 * Fork/join task over a range of records.
+	 */
+	private static final class Task extends RecursiveTask<Counts> {
+		private static final long serialVersionUID = 1L;
+		private final byte[] buffer;
+		private final int offset;
+		private final int recordLength;
+		private final int from;
+		private final int to;
+		private final int[] fieldEnds;
+		Task(byte[] buffer, int offset, int recordLength, int from, int to,
+				int[] fieldEnds)
+		{
+			this.buffer = buffer;
+			this.offset = offset;
+			this.recordLength = recordLength;
+			this.from = from;
+			this.to = to;
+			this.fieldEnds = fieldEnds;
+		}
+		@Override
+		protected Counts compute()
+		{
+			if (to - from <= PARALLEL_THRESHOLD)
+			{
+				Counts ret = new Counts();
+				normalize(buffer, offset, recordLength, from, to, fieldEnds,
+						ret.bySign);
+				return ret;
+			}
+			int mid = (from + to) >>> 1;
+			Task left = new Task(buffer, offset, recordLength, from, mid, fieldEnds);
+			left.fork();
+			Counts right = new Task(buffer, offset, recordLength, mid, to,
+					fieldEnds).compute();
+			return right.add(left.join());
+		}
+	}
+	/**
+	 * Private method to normalise records <code>from</code> (inclusive) to
+	 * <code>to</code> (exclusive).
+	 */
+	private static void normalize(byte[] buffer, int offset, int recordLength,
+			int from, int to, int[] fieldEnds, long[] bySign)
+	{
+		for (int r = from; r < to; r++)
+		{
+			int base = offset + r * recordLength;
+			for (int f = 0; f < fieldEnds.length; f++)
+			{
+				int pos = base + fieldEnds[f];
+				int b = buffer[pos] & 0xff;
+				bySign[b & 0x0f]++;
+				buffer[pos] = PREFERRED[b];
+			}
+		}
+	}
+	/**
+	 * Private method to check batch arguments.
+	 */
+	private static void check(byte[] buffer, int offset, int recordLength,
+			int recordCount, int[] fieldEnds)
+	{
+		if (offset < 0 || recordLength <= 0 || recordCount < 0 ||
+				(long)offset + (long)recordLength * recordCount > buffer.length)
+			throw new IllegalArgumentException("Bad value(s), offset: " +
+					offset + ", recordLength: " + recordLength +
+					", recordCount: " + recordCount);
+		for (int end : fieldEnds)
+		{
+			if (end < 0 || end >= recordLength)
+				throw new IllegalArgumentException("Bad field end: " + end);
+		}
+		return;
+	}
+} // end of class
@@ -0,0 +1,290 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+/**
+ * This class is a sparse index over a file of fixed length records which
+ * is sorted by a packed decimal key.
+ * <br /><br />
+ * The raw packed key of every <em>n</em>th record is kept in a compact
+ * <code>byte[]</code>.  A lookup binary searches those samples, then
+ * binary searches the one block of the (usually memory mapped) file which
+ * can hold the key.  Keys are compared as packed bytes, with sign
+ * awareness, and are never unpacked.
+ * <br /><br />
+ * The file must be sorted in ascending numeric key order.  Mapped files
+ * are limited to 2GB.
+ * <hr />
+ * This class is thread safe.  <code>ByteBuffer</code> data is read with
+ * absolute <code>get</code> calls only.
+ * <hr />
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public final class SparseIndex {
+	/**
+	 * Length of each record.
+	 */
+	private final int recordLength;
+	/**
+	 * Offset of the key within a record.
+	 */
+	private final int keyOffset;
+	/**
+	 * Length of the packed key.
+	 */
+	private final int keyLength;
+	/**
+	 * Number of records between samples.
+	 */
+	private final int interval;
+	/**
+	 * Number of records in the indexed file.
+	 */
+	private final int recordCount;
+	/**
+	 * Sampled keys, <code>keyLength</code> bytes each.
+	 */
+	private final ByteBuffer samples;
+	/**
+	 * Private constructor, use <code>build</code> or <code>read</code>.
+	 */
+	private SparseIndex(int recordLength, int keyOffset, int keyLength,
+			int interval, int recordCount, byte[] samples)
+	{
+		this.recordLength = recordLength;
+		this.keyOffset = keyOffset;
+		this.keyLength = keyLength;
+		this.interval = interval;
+		this.recordCount = recordCount;
+		this.samples = ByteBuffer.wrap(samples);
+	}
+	/**
+	 * Build an index over records held in a <code>ByteBuffer</code>.
+	 * <br /><br />
+	 * @param data The records, from position 0 to the limit.
+	 * @param recordLength The length of each record.
+	 * @param keyOffset The offset of the packed key within a record.
+	 * @param keyLength The length of the packed key.
+	 * @param interval Sample every <code>interval</code>th record.
+	 * @return The index.
+	 * @throws IllegalArgumentException if the key does not lie within the
+	 * record or <code>interval</code> is not positive.
+	 */
+	public static SparseIndex build(ByteBuffer data, int recordLength,
+			int keyOffset, int keyLength, int interval)
+	{
+		if (keyOffset < 0 || keyLength <= 0 || keyOffset + keyLength > recordLength ||
+				interval <= 0)
+			throw new IllegalArgumentException("Bad value(s), recordLength: " +
+					recordLength + ", keyOffset: " + keyOffset +
+					", keyLength: " + keyLength + ", interval: " + interval);
+		int recordCount = data.limit() / recordLength;
+		int sampleCount = (recordCount + interval - 1) / interval;
+		byte[] samples = new byte[sampleCount * keyLength];
+		for (int s = 0; s < sampleCount; s++)
+		{
+			int pos = s * interval * recordLength + keyOffset;
+			for (int i = 0; i < keyLength; i++)
+				samples[s * keyLength + i] = data.get(pos + i);
+		}
+		return new SparseIndex(recordLength, keyOffset, keyLength, interval,
+				recordCount, samples);
+	}
+	/**
+	 * Map a file read only.
+	 * @param file The file to map.
+	 * @return The mapped file.
+	 * @throws IOException if the file cannot be mapped.
+	 */
+	public static MappedByteBuffer map(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel fc = raf.getChannel();
+			return fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+		} finally {
+			raf.close();
+		}
+	}
+	/**
+	 * Find a record by key.
+	 * <br /><br />
+	 * @param data The records the index was built over.
+	 * @param key A <code>byte[]</code> holding the packed key, which must
+	 * be <code>keyLength</code> bytes long.
+	 * @param offset The offset of the key in <code>key</code>.
+	 * @return The number of the first record with the key, or -1 if there
+	 * is none.
+	 * @throws IllegalArgumentException if a sign nibble is a digit.
+	 */
+	public int find(ByteBuffer data, byte[] key, int offset)
+	{
+		// Last sample strictly below the key.
+		int lo = 0;
+		int hi = samples.capacity() / keyLength - 1;
+		int block = 0;
+		while (lo <= hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (compare(samples, mid * keyLength, key, offset) < 0)
+			{
+				block = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		// First record in the block, or the first of the next, not below the key.
+		lo = block * interval;
+		hi = Math.min(lo + interval, recordCount - 1);
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (compare(data, mid * recordLength + keyOffset, key, offset) < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		if (lo < recordCount &&
+				compare(data, lo * recordLength + keyOffset, key, offset) == 0)
+			return lo;
+		return -1;
+	}
+	/**
+	 * Convenience method to find a record by a <code>long</code> key.
+	 * @see #find(ByteBuffer, byte[], int)
+	 */
+	public int find(ByteBuffer data, long key)
+	{
+		byte[] packed = new byte[keyLength];
+		Packer.pack(key, packed, 0, keyLength);
+		return find(data, packed, 0);
+	}
+	/**
+	 * Write the index, so that it can be reused with {@link #read(InputStream)}.
+	 * @param out The stream to write to.  It is not closed.
+	 * @throws IOException if the index cannot be written.
+	 */
+	public void write(OutputStream out) throws IOException
+	{
+		DataOutputStream dos = new DataOutputStream(out);
+		dos.writeInt(recordLength);
+		dos.writeInt(keyOffset);
+		dos.writeInt(keyLength);
+		dos.writeInt(interval);
+		dos.writeInt(recordCount);
+		dos.writeInt(samples.capacity());
+		dos.write(samples.array());
+		dos.flush();
+	}
+	/**
+	 * Read an index written by {@link #write(OutputStream)}.
+	 * @param in The stream to read from.  It is not closed.
+	 * @return The index.
+	 * @throws IOException if the index cannot be read.
+	 */
+	public static SparseIndex read(InputStream in) throws IOException
+	{
+		DataInputStream dis = new DataInputStream(in);
+		int recordLength = dis.readInt();
+		int keyOffset = dis.readInt();
+		int keyLength = dis.readInt();
+		int interval = dis.readInt();
+		int recordCount = dis.readInt();
+		byte[] samples = new byte[dis.readInt()];
+		dis.readFully(samples);
+		return new SparseIndex(recordLength, keyOffset, keyLength, interval,
+				recordCount, samples);
+	}
+	/**
+	 * Return the number of records in the indexed data.
+	 * @return The number of records.
+	 */
+	public int getRecordCount()
+	{
+		return recordCount;
+	}
+	/**
+	 * Private method to compare a packed key in a buffer with the search key.
+	 * @return A negative, zero or positive value as the buffer key is less
+	 * than, equal to or greater than the search key.
+	 */
+	private int compare(ByteBuffer buf, int pos, byte[] key, int offset)
+	{
+		int last = keyLength - 1;
+		int sa = sign(buf.get(pos + last));
+		int sb = sign(key[offset + last]);
+		int mag = 0;
+		for (int i = 0; i <= last && mag == 0; i++)
+		{
+			int a = buf.get(pos + i) & 0xff;
+			int b = key[offset + i] & 0xff;
+			if (i == last)
+			{
+				a &= 0xf0;	// ignore sign nibbles
+				b &= 0xf0;
+			}
+			if (a != b)
+				mag = a < b ? -1 : 1;
+		}
+		if (sa != sb)
+		{
+			if (mag == 0 && isZero(key, offset))	// -0 == +0
+				return 0;
+			return sa;
+		}
+		return sa < 0 ? -mag : mag;
+	}
+	/**
+	 * Private method to test if the search key magnitude is zero.
+	 */
+	private boolean isZero(byte[] key, int offset)
+	{
+		for (int i = 0; i < keyLength - 1; i++)
+		{
+			if (key[offset + i] != 0)
+				return false;
+		}
+		return (key[offset + keyLength - 1] & 0xf0) == 0;
+	}
+	/**
+	 * Private method to classify a sign byte.
+	 * @throws IllegalArgumentException if the sign nibble is a digit.
+	 */
+	private static int sign(byte signByte)
+	{
+		int ret = PDUtils.signOf(signByte);
+		if (ret == 0)
+			throw new IllegalArgumentException("Invalid sign byte: 0x" +
+					Integer.toHexString(signByte & 0xff));
+		return ret;
+	}
+} // end of class
@@ -19,6 +19,8 @@ This file is part of the Java packed decimal utilities project.
    along with the Java packed decimal utilities project.  
    If not, see <http://www.gnu.org/licenses/>.
 */
+import java.math.BigDecimal;
+import java.math.BigInteger;
 /**
  * This class contains utility methods for converting byte arrays
  * (or slices of byte arrays) to <code>String</code> objects representing
@@ -43,6 +45,11 @@ public final class Unpacker {
 		"000000000000000000000000000000000000000000000000000000000000000000000000000000" +
 		"000000000000000000000000000000000000000000000000000000000000000000000000000000"
 		;
+	/**
+	 * Largest magnitude below which every <code>long</code> is an exact
+	 * <code>double</code>.
+	 */
+	private static final long TWO_53 = 1L << 53;
 	/**
 	 * Return a <code>String</code> representing the numeric value of the
 	 * input packed decimal byte array.
@@ -170,6 +177,172 @@ public final class Unpacker {
 		String ret = getDecString(packedDecimal, startByte, numBytes);
 		return precisionPad(ret, precision);
 	}
+	/**
+	 * Return the signed <code>long</code> value of a packed decimal field.
+	 * Unlike the other methods of this class the sign nibble
+	 * <em>is</em> inspected: 0x0b and 0x0d are negative, 0x0a, 0x0c, 0x0e
+	 * and 0x0f are positive.  Nothing is allocated.
+	 * <br /><br />
+	 * @param packedDecimal A <code>byte[]</code> array containing a valid
+	 * packed decimal value.
+	 * <br /><br />
+	 * @param startByte The offset of the first byte to be converted.
+	 * <br /><br />
+	 * @param numBytes The number of bytes to convert, at most 10.
+	 * @return The value of the field.
+	 * @throws IllegalArgumentException if the field contains a non-numeric
+	 * digit nibble or an invalid sign nibble, or the value does not fit
+	 * in a <code>long</code>.
+	 * @throws @see {@link Unpacker#checkArray(byte[], int, int)}
+	 */
+	public static long getLong(byte[] packedDecimal, int startByte, int numBytes)
+	{
+		checkArray(packedDecimal, startByte, numBytes);
+		if (numBytes > 10)
+			throw new IllegalArgumentException("numBytes too large for long, is: " +
+					numBytes);
+		// Developed as a negative value so that Long.MIN_VALUE is handled.
+		long ret = 0;
+		int endByte = startByte + numBytes - 1;
+		for (int nextByte = startByte; nextByte < endByte; nextByte++)
+		{
+			int b = packedDecimal[nextByte] & 0xff;
+			int hi = b >> 4;
+			int lo = b & 0x0f;
+			if (hi > 9 || lo > 9)
+				throw new IllegalArgumentException("<result> not numeric, byte is: " +
+						getHexStringForByte(b));
+			ret = ret * 100 - (hi * 10 + lo);
+		}
+		int last = packedDecimal[endByte] & 0xff;
+		int hi = last >> 4;
+		int sign = PDUtils.signOf(last);
+		if (hi > 9 || sign == 0)
+			throw new IllegalArgumentException("Invalid last byte: 0x" +
+					getHexStringForByte(last));
+		if (ret < (Long.MIN_VALUE + hi) / 10)
+			throw new IllegalArgumentException("value too large for long");
+		ret = ret * 10 - hi;
+		if (sign > 0)
+		{
+			if (ret == Long.MIN_VALUE)
+				throw new IllegalArgumentException("value too large for long");
+			ret = -ret;
+		}
+		return ret;
+	}
+	/**
+	 * Return the signed <code>BigInteger</code> value of a packed decimal
+	 * field of any width.  The sign nibble is inspected, as for
+	 * {@link #getLong(byte[], int, int)}.
+	 * <br /><br />
+	 * Fields of up to 18 digits go through {@link #getLong(byte[], int, int)}.
+	 * Wider fields are read as 18 digit <code>long</code> chunks, which are
+	 * then combined pairwise by multiplying by
+	 * 10<sup>18 * 2<sup>k</sup></sup>.  No <code>String</code> is created.
+	 * <br /><br />
+	 * @param packedDecimal A <code>byte[]</code> array containing a valid
+	 * packed decimal value.
+	 * <br /><br />
+	 * @param startByte The offset of the first byte to be converted.
+	 * <br /><br />
+	 * @param numBytes The number of bytes to convert.
+	 * @return The value of the field.
+	 * @throws IllegalArgumentException if the field contains a non-numeric
+	 * digit nibble or an invalid sign nibble.
+	 * @throws @see {@link Unpacker#checkArray(byte[], int, int)}
+	 */
+	public static BigInteger getBigInteger(byte[] packedDecimal, int startByte,
+			int numBytes)
+	{
+		checkArray(packedDecimal, startByte, numBytes);
+		if (numBytes <= 9)
+			return BigInteger.valueOf(getLong(packedDecimal, startByte, numBytes));
+		int last = startByte + numBytes - 1;
+		int sign = PDUtils.signOf(packedDecimal[last]);
+		if (sign == 0)
+			throw new IllegalArgumentException("Invalid sign byte: 0x" +
+					getHexStringForByte(packedDecimal[last]));
+		int digits = 2 * numBytes - 1;
+		int chunks = (digits + Packer.CHUNK_DIGITS - 1) / Packer.CHUNK_DIGITS;
+		long[] parts = new long[chunks];
+		for (int i = 0; i < chunks; i++)
+		{
+			int from = i * Packer.CHUNK_DIGITS;
+			int to = Math.min(from + Packer.CHUNK_DIGITS, digits);
+			long work = 0;
+			for (int p = to - 1; p >= from; p--)
+			{
+				int b = packedDecimal[last - ((p + 1) >> 1)];
+				int d = (p & 1) == 0 ? (b >> 4) & 0x0f : b & 0x0f;
+				if (d > 9)
+					throw new IllegalArgumentException("<result> not numeric, byte is: " +
+							getHexStringForByte(b));
+				work = work * 10 + d;
+			}
+			parts[i] = work;
+		}
+		BigInteger ret = combine(parts, 0, chunks);
+		return sign < 0 ? ret.negate() : ret;
+	}
+	/**
+	 * Return the signed <code>BigDecimal</code> value of a packed decimal
+	 * field of any width.
+	 * <br /><br />
+	 * @param packedDecimal A <code>byte[]</code> array containing a valid
+	 * packed decimal value.
+	 * <br /><br />
+	 * @param startByte The offset of the first byte to be converted.
+	 * <br /><br />
+	 * @param numBytes The number of bytes to convert.
+	 * <br /><br />
+	 * @param scale The number of implied decimal places.
+	 * @return The value of the field.
+	 * @throws @see {@link #getBigInteger(byte[], int, int)}
+	 */
+	public static BigDecimal getBigDecimal(byte[] packedDecimal, int startByte,
+			int numBytes, int scale)
+	{
+		if (numBytes <= 9)
+			return BigDecimal.valueOf(getLong(packedDecimal, startByte, numBytes),
+					scale);
+		return new BigDecimal(getBigInteger(packedDecimal, startByte, numBytes),
+				scale);
+	}
+	/**
+	 * Return the <code>double</code> nearest to the value of a packed
+	 * decimal field with implied decimal places.
+	 * <br /><br />
+	 * When the unscaled value is below 2<sup>53</sup> and
+	 * <code>scale</code> is at most 18, both it and the power of ten are
+	 * exact <code>double</code> values, so a single division is correctly
+	 * rounded.  Other values take a <code>BigDecimal</code> path.
+	 * <br /><br />
+	 * @param packedDecimal A <code>byte[]</code> array containing a valid
+	 * packed decimal value.
+	 * <br /><br />
+	 * @param startByte The offset of the first byte to be converted.
+	 * <br /><br />
+	 * @param numBytes The number of bytes to convert.
+	 * <br /><br />
+	 * @param scale The number of implied decimal places.
+	 * @return The nearest <code>double</code>.
+	 * @throws @see {@link #getBigInteger(byte[], int, int)}
+	 */
+	public static double unpackDouble(byte[] packedDecimal, int startByte,
+			int numBytes, int scale)
+	{
+		if (scale < 0)
+			throw new IllegalArgumentException("scale negative, is: " + scale);
+		if (numBytes <= 9 && scale < Packer.POW10.length)
+		{
+			long n = getLong(packedDecimal, startByte, numBytes);
+			if (n < TWO_53 && n > -TWO_53)
+				return (double)n / Packer.POW10[scale];
+		}
+		return getBigDecimal(packedDecimal, startByte, numBytes, scale)
+			.doubleValue();
+	}
 	/**
 	 * Return the two character <code>String</code> representing the value of
 	 * the input.
@@ -253,6 +426,24 @@ public final class Unpacker {
 		bldr.setLength(bldr.length()-1);	// Chop sign nibble
 		return bldr.toString();
 	}
+	/**
+	 * Private method to combine 18 digit chunks, least significant first,
+	 * into a <code>BigInteger</code>.  The low part is always a power of
+	 * two chunks long, so its multiplier is taken from
+	 * {@link Packer#CHUNK_POW10}.
+	 */
+	private static BigInteger combine(long[] parts, int from, int count)
+	{
+		if (count == 1)
+			return BigInteger.valueOf(parts[from]);
+		int lowCount = Integer.highestOneBit(count - 1);
+		int level = Integer.numberOfTrailingZeros(lowCount);
+		if (level >= Packer.CHUNK_POW10.length)
+			throw new IllegalArgumentException("numBytes too large");
+		BigInteger low = combine(parts, from, lowCount);
+		BigInteger high = combine(parts, from + lowCount, count - lowCount);
+		return high.multiply(Packer.CHUNK_POW10[level]).add(low);
+	}
 	/**
 	 * Private method to perform checks on client supplied integer values.
 	 * <br /><br />
@@ -0,0 +1,155 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.nio.ByteBuffer;
+import junit.framework.TestCase;
+/**
+ * This class contains unit tests for the <code>BinaryConverter</code>
+ * class.
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public class TestBinaryConverter extends TestCase {
+	/**
+	 * Test round trips at each binary length, including the extremes.
+	 */
+	public void testRoundTrip()
+	{
+		long[][] values = {
+			{0, 1, -1, 32767, -32768, 1234},
+			{0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 987654321},
+			{0, -1, Long.MAX_VALUE, Long.MIN_VALUE, 123456789012345678L},
+		};
+		int[] lengths = {2, 4, 8};
+		for (int l = 0; l < lengths.length; l++)
+		{
+			for (long v : values[l])
+			{
+				byte[] packed = new byte[10];
+				Packer.pack(v, packed, 0, 10);
+				byte[] bin = new byte[8];
+				BinaryConverter.packedToBinary(packed, 0, 10, bin, 0, lengths[l]);
+				ByteBuffer bb = ByteBuffer.wrap(bin);
+				long got = lengths[l] == 2 ? bb.getShort() :
+					lengths[l] == 4 ? bb.getInt() : bb.getLong();
+				assertEquals("p2b" + v, v, got);
+				byte[] back = new byte[10];
+				BinaryConverter.binaryToPacked(bin, 0, lengths[l], back, 0, 10);
+				assertEquals("b2p" + v, v, Unpacker.getLong(back, 0, 10));
+			}
+		}
+	}
+	/**
+	 * Test the bulk methods over records.
+	 */
+	public void testBulk()
+	{
+		// Records: 1 filler byte, 3 byte packed field.
+		byte[] src = {
+			(byte)0xff, (byte)0x01, (byte)0x23, (byte)0x4c,
+			(byte)0xff, (byte)0x00, (byte)0x00, (byte)0x1d,
+		};
+		byte[] bin = new byte[8];
+		BinaryConverter.packedToBinary(src, 1, 4, 3, bin, 0, 4, 4, 2);
+		ByteBuffer bb = ByteBuffer.wrap(bin);
+		assertEquals("bk1", 1234, bb.getInt(0));
+		assertEquals("bk2", -1, bb.getInt(4));
+		byte[] back = new byte[8];
+		BinaryConverter.binaryToPacked(bin, 0, 4, 4, back, 1, 4, 3, 2);
+		for (int i = 0; i < 8; i++)
+		{
+			if (i % 4 != 0)
+				assertEquals("bk3" + i, src[i], back[i]);
+		}
+	}
+	/**
+	 * Test error handling.
+	 */
+	public void testErrors()
+	{
+		byte[] packed = new byte[3];
+		Packer.pack(40000L, packed, 0, 3);
+		try {
+			BinaryConverter.packedToBinary(packed, 0, 3, new byte[2], 0, 2);
+			fail("Halfword overflow");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+		try {
+			BinaryConverter.packedToBinary(packed, 0, 3, new byte[3], 0, 3);
+			fail("Bad length");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+		byte[] bin = {(byte)0x7f, (byte)0xff, (byte)0xff, (byte)0xff};
+		try {
+			BinaryConverter.binaryToPacked(bin, 0, 4, new byte[3], 0, 3);
+			fail("Packed overflow");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+	/**
+	 * Test batch checking, and that a bad batch writes nothing.
+	 */
+	public void testBulkErrors()
+	{
+		byte[] src = {
+			(byte)0xff, (byte)0x01, (byte)0x23, (byte)0x4c,
+			(byte)0xff, (byte)0x00, (byte)0x00, (byte)0x1d,
+		};
+		byte[] bin = new byte[12];
+		int[][] bad = {
+			{1, 4, 0, 4, 3}, {-1, 4, 0, 4, 2}, {1, 4, -1, 4, 2},
+			{1, 4, 0, 4, -1}, {1, 2, 0, 4, 2}, {1, 4, 0, 2, 2},
+			{1, 4, 6, 4, 2},
+		};
+		for (int[] b : bad)
+		{
+			try {
+				BinaryConverter.packedToBinary(src, b[0], b[1], 3, bin, b[2], b[3],
+						4, b[4]);
+				fail("Bad batch: " + b[0] + ", " + b[1] + ", " + b[2] + ", " +
+						b[3] + ", " + b[4]);
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+			try {
+				BinaryConverter.binaryToPacked(bin, b[2], b[3], 4, src, b[0], b[1],
+						3, b[4]);
+				fail("Bad reverse batch: " + b[0] + ", " + b[1] + ", " + b[2] +
+						", " + b[3] + ", " + b[4]);
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+		}
+		for (int i = 0; i < bin.length; i++)
+			assertEquals("untouched" + i, 0, bin[i]);
+		src[7] = (byte)0x12;	// record 1 has a digit for a sign
+		try {
+			BinaryConverter.packedToBinary(src, 1, 4, 3, bin, 0, 4, 4, 2);
+			fail("Bad record");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("msg", iae.getMessage().startsWith("record 1: "));
+			assertTrue("cause", iae.getCause() instanceof IllegalArgumentException);
+		}
+	}
+} // end of class
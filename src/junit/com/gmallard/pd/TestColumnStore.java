@@ -0,0 +1,179 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.BitSet;
+import java.util.Random;
+import junit.framework.TestCase;
+/**
+ * This class contains unit tests for the <code>ColumnStore</code>
+ * class.  Query results are checked against a brute force pass over the
+ * same values.
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public class TestColumnStore extends TestCase {
+	/**
+	 * Record layout: a 3 digit code, an S9(9)V99 amount, and an
+	 * S9(27)V9(4) ledger value.
+	 */
+	private static final int RECLEN = 26;
+	private static final int ROWS = 1000;
+	private ColumnStore store;
+	private int code;
+	private int amount;
+	private int ledger;
+	private long[] codes = new long[ROWS];
+	private BigDecimal[] amounts = new BigDecimal[ROWS];
+	private BigDecimal[] ledgers = new BigDecimal[ROWS];
+	/**
+	 * Build the store from random records, with codes ascending so that
+	 * the zone maps come into play.
+	 */
+	@Override
+	protected void setUp() throws Exception
+	{
+		Random rnd = new Random(20081022L);
+		byte[] buffer = new byte[ROWS * RECLEN];
+		for (int i = 0; i < ROWS; i++)
+		{
+			int base = i * RECLEN;
+			codes[i] = i / 4 - 50;
+			Packer.pack(codes[i], buffer, base, 2);
+			long amt = rnd.nextLong() % 100000000000L;
+			amounts[i] = BigDecimal.valueOf(amt, 2);
+			Packer.pack(amt, buffer, base + 2, 6);
+			BigInteger ldg = new BigInteger(100, rnd);
+			if (rnd.nextBoolean())
+				ldg = ldg.negate();
+			ledgers[i] = new BigDecimal(ldg, 4);
+			Packer.pack(ldg, buffer, base + 8, 16);
+		}
+		store = new ColumnStore(RECLEN, 100);
+		code = store.addColumn(0, 2, 0);
+		amount = store.addColumn(2, 6, 2);
+		ledger = store.addColumn(8, 16, 4);
+		store.append(buffer, 0, 600);
+		store.append(buffer, 600 * RECLEN, ROWS - 600);
+	}
+	/**
+	 * Test whole column aggregates.
+	 */
+	public void testWholeColumn()
+	{
+		assertEquals("rows", ROWS, store.getRowCount());
+		int[] cols = {code, amount, ledger};
+		for (int c : cols)
+		{
+			BigDecimal sum = BigDecimal.ZERO;
+			BigDecimal min = null;
+			BigDecimal max = null;
+			for (int i = 0; i < ROWS; i++)
+			{
+				BigDecimal v = value(c, i);
+				sum = sum.add(v);
+				min = min == null || v.compareTo(min) < 0 ? v : min;
+				max = max == null || v.compareTo(max) > 0 ? v : max;
+			}
+			assertEquals("sum" + c, 0, sum.compareTo(store.sum(c)));
+			assertEquals("min" + c, 0, min.compareTo(store.min(c)));
+			assertEquals("max" + c, 0, max.compareTo(store.max(c)));
+		}
+	}
+	/**
+	 * Test filtered queries, including ranges which skip chunks and take
+	 * whole chunks.
+	 */
+	public void testFiltered()
+	{
+		String[][] ranges = {
+			{"-50", "199"}, {"-10", "40"}, {"3", "3"}, {"500", null},
+			{null, "-45"}, {"2.5", "3.5"}, {"7", "6"},
+		};
+		for (String[] range : ranges)
+		{
+			BigDecimal lo = range[0] == null ? null : new BigDecimal(range[0]);
+			BigDecimal hi = range[1] == null ? null : new BigDecimal(range[1]);
+			BitSet expected = new BitSet();
+			for (int i = 0; i < ROWS; i++)
+			{
+				BigDecimal v = BigDecimal.valueOf(codes[i]);
+				if ((lo == null || v.compareTo(lo) >= 0) &&
+						(hi == null || v.compareTo(hi) <= 0))
+					expected.set(i);
+			}
+			String id = range[0] + ":" + range[1];
+			assertEquals("cnt" + id, expected.cardinality(), store.count(code, lo, hi));
+			assertEquals("sel" + id, expected, store.select(code, lo, hi));
+			int[] cols = {amount, ledger};
+			for (int c : cols)
+			{
+				BigDecimal sum = BigDecimal.ZERO;
+				BigDecimal min = null;
+				for (int i = expected.nextSetBit(0); i >= 0; i = expected.nextSetBit(i + 1))
+				{
+					sum = sum.add(value(c, i));
+					min = min == null || value(c, i).compareTo(min) < 0 ? value(c, i) : min;
+				}
+				ColumnStore.Aggregate agg = store.aggregate(c, code, lo, hi);
+				assertEquals("acnt" + id, expected.cardinality(), agg.getCount());
+				assertEquals("asum" + id, 0, sum.compareTo(agg.getSum()));
+				if (min == null)
+					assertNull("amin" + id, agg.getMin());
+				else
+					assertEquals("amin" + id, 0, min.compareTo(agg.getMin()));
+			}
+		}
+	}
+	/**
+	 * Test argument checking.
+	 */
+	public void testErrors()
+	{
+		try {
+			store.count(ledger, BigDecimal.ZERO, null);
+			fail("Wide filter");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+		try {
+			store.addColumn(0, 1, 0);
+			fail("Late column");
+		} catch(IllegalStateException ise) {
+			assertTrue("ISEOK", true);
+		}
+		try {
+			store.sum(3);
+			fail("Bad column");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+	/**
+	 * Private method to return the expected value of a column.
+	 */
+	private BigDecimal value(int c, int row)
+	{
+		return c == code ? BigDecimal.valueOf(codes[row]) :
+			c == amount ? amounts[row] : ledgers[row];
+	}
+} // end of class
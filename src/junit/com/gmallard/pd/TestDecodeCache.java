@@ -0,0 +1,99 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.math.BigDecimal;
+import junit.framework.TestCase;
+/**
+ * This class contains unit tests for the <code>DecodeCache</code>
+ * class.
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public class TestDecodeCache extends TestCase {
+	/**
+	 * Test that repeated values return canonical instances.
+	 */
+	public void testCanonical()
+	{
+		DecodeCache cache = new DecodeCache(2, 1, 16);
+		byte[] rec = {
+			(byte)0x12, (byte)0x3d, (byte)0x12, (byte)0x3d, (byte)0x45, (byte)0x6c,
+		};
+		String s1 = cache.getDecString(rec, 0);
+		assertEquals("s1", "123", s1);
+		assertSame("s2", s1, cache.getDecString(rec, 2));
+		assertEquals("l1", Long.valueOf(-123L), cache.getLong(rec, 0));
+		assertSame("l2", cache.getLong(rec, 0), cache.getLong(rec, 2));
+		assertEquals("d1", new BigDecimal("45.6"), cache.getBigDecimal(rec, 4));
+		assertSame("d2", cache.getBigDecimal(rec, 4), cache.getBigDecimal(rec, 4));
+		assertEquals("hits", 5L, cache.getHits());
+		assertEquals("misses", 3L, cache.getMisses());
+		assertEquals("rate", 0.625, cache.getHitRate(), 1e-9);
+		cache.clear();
+		assertEquals("cleared", 0.0, cache.getHitRate(), 0.0);
+	}
+	/**
+	 * Test eviction when there are more distinct values than entries,
+	 * and fields wider than 8 bytes.
+	 */
+	public void testEviction()
+	{
+		int[] widths = {3, 10};
+		for (int width : widths)
+		{
+			DecodeCache cache = new DecodeCache(width, 0, 8);
+			byte[] field = new byte[width];
+			for (int round = 0; round < 3; round++)
+			{
+				for (long v = 0; v < 100; v++)
+				{
+					Packer.pack(v, field, 0, width);
+					assertEquals("e" + width + ":" + v, Long.valueOf(v),
+							cache.getLong(field, 0));
+				}
+			}
+			assertTrue("ev" + width, cache.getEvictions() > 0);
+			assertEquals("total" + width, 300L, cache.getHits() + cache.getMisses());
+		}
+	}
+	/**
+	 * Test that invalid data is still rejected.
+	 */
+	public void testInvalid()
+	{
+		DecodeCache cache = new DecodeCache(2, 0, 8);
+		byte[] bad = {(byte)0x1a, (byte)0x3c};
+		for (int i = 0; i < 2; i++)
+		{
+			try {
+				cache.getDecString(bad, 0);
+				fail("Unexpected pass");
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+		}
+		assertEquals("hits", 0L, cache.getHits());
+		assertEquals("misses", 2L, cache.getMisses());
+		byte[] good = {(byte)0x12, (byte)0x3c};
+		assertEquals("good", "123", cache.getDecString(good, 0));
+		assertEquals("evictions", 0L, cache.getEvictions());
+	}
+} // end of class
@@ -0,0 +1,113 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import junit.framework.TestCase;
+/**
+ * This class contains unit tests for the <code>EditMask</code>
+ * class.
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public class TestEditMask extends TestCase {
+	/**
+	 * Test values: mask, packed value, expected result.
+	 */
+	private static final String[][] CASES = {
+		{"ZZZ,ZZ9.99-", "1234567", " 12,345.67 "},
+		{"ZZZ,ZZ9.99-", "-1234567", " 12,345.67-"},
+		{"ZZZ,ZZ9.99-", "5", "      0.05 "},
+		{"$$$,$$9.99CR", "-1234567", "$12,345.67CR"},
+		{"$$$,$$9.99CR", "5", "     $0.05  "},
+		{"$$$,$$9.99DB", "-123456", " $1,234.56DB"},
+		{"***,**9.99", "1234", "*****12.34"},
+		{"Z(4)9", "42", "   42"},
+		{"ZZZ.ZZ", "0", "      "},
+		{"ZZZ.ZZ", "5", "   .05"},
+		{"$$$.$$", "5", "  $.05"},
+		{"$$$.$$", "-1234", "$12.34"},
+		{"----9", "-12", "  -12"},
+		{"----9", "12", "   12"},
+		{"+ZZ9", "-7", "-  7"},
+		{"+ZZ9", "7", "+  7"},
+		{"$ZZ9.99", "123", "$  1.23"},
+		{"99/99/99", "311208", "31/12/08"},
+		{"ZZZBZZ9", "1234", "  1 234"},
+	};
+	/**
+	 * Test editing into a <code>char[]</code>.
+	 */
+	public void testFormatChars()
+	{
+		for (String[] c : CASES)
+		{
+			EditMask em = EditMask.compile(c[0]);
+			char[] out = new char[em.getLength() + 2];
+			out[0] = '<';
+			out[out.length - 1] = '>';
+			em.format(packed(c[1]), 0, 4, out, 1);
+			assertEquals(c[0] + " " + c[1], "<" + c[2] + ">", new String(out));
+		}
+	}
+	/**
+	 * Test editing into a <code>byte[]</code>, and the EDMK style return.
+	 */
+	public void testFormatBytes() throws Exception
+	{
+		EditMask em = EditMask.compile("$$$,$$9.99CR");
+		byte[] out = new byte[em.getLength()];
+		int sig = em.format(packed("5"), 0, 4, out, 0);
+		assertEquals("b1", "     $0.05  ", new String(out, "ISO-8859-1"));
+		assertEquals("b2", 6, sig);
+		assertEquals("b3", -1, EditMask.compile("ZZZ").format(packed("0"), 0, 4,
+				out, 0));
+	}
+	/**
+	 * Test error handling.
+	 */
+	public void testErrors()
+	{
+		String[] badMasks = {"ZZX9", "Z(0)9", "$$9.9--", ",.", "Z(x)"};
+		for (String m : badMasks)
+		{
+			try {
+				EditMask.compile(m);
+				fail("Bad mask: " + m);
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+		}
+		try {
+			EditMask.compile("ZZ9").format(packed("12345"), 0, 4, new char[3], 0);
+			fail("Overflow");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+	/**
+	 * Private method to pack a value into a 4 byte field.
+	 */
+	private static byte[] packed(String value)
+	{
+		byte[] ret = new byte[4];
+		Packer.pack(Long.parseLong(value), ret, 0, 4);
+		return ret;
+	}
+} // end of class
@@ -0,0 +1,170 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.util.BitSet;
+import junit.framework.TestCase;
+/**
+ * This class contains unit tests for the <code>PackedFilter</code>
+ * class.
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public class TestPackedFilter extends TestCase {
+	/**
+	 * Five 4 byte records, one S9(5)V99 field at offset 0:
+	 * 1000.00, 1000.01, -2.50, 0.00 (negative zero), 12345.67.
+	 */
+	private static final byte[] RECORDS = {
+		(byte)0x01, (byte)0x00, (byte)0x00, (byte)0x0c,
+		(byte)0x01, (byte)0x00, (byte)0x00, (byte)0x1c,
+		(byte)0x00, (byte)0x00, (byte)0x25, (byte)0x0d,
+		(byte)0x00, (byte)0x00, (byte)0x00, (byte)0x0d,
+		(byte)0x12, (byte)0x34, (byte)0x56, (byte)0x7f,
+	};
+	/**
+	 * Test the range predicates.
+	 */
+	public void testRange()
+	{
+		assertEquals("gt", bits(1, 4),
+			PackedFilter.greaterThan(0, 4, 2, "1000.00").select(RECORDS, 0, 4, 5));
+		assertEquals("ge", bits(0, 1, 4),
+			PackedFilter.greaterThanOrEqual(0, 4, 2, "1000").select(RECORDS, 0, 4, 5));
+		assertEquals("lt", bits(2, 3),
+			PackedFilter.lessThan(0, 4, 2, "1000.00").select(RECORDS, 0, 4, 5));
+		assertEquals("le", bits(0, 2, 3),
+			PackedFilter.lessThanOrEqual(0, 4, 2, "1000.00").select(RECORDS, 0, 4, 5));
+		assertEquals("ltneg", bits(2),
+			PackedFilter.lessThan(0, 4, 2, "-1").select(RECORDS, 0, 4, 5));
+		assertEquals("btw", bits(2, 3, 0),
+			PackedFilter.between(0, 4, 2, "-2.50", "1000").select(RECORDS, 0, 4, 5));
+	}
+	/**
+	 * Test constants with more decimal places than the field.
+	 */
+	public void testInexactConstant()
+	{
+		assertEquals("gtx", bits(1, 4),
+			PackedFilter.greaterThan(0, 4, 2, "1000.005").select(RECORDS, 0, 4, 5));
+		assertEquals("gex", bits(1, 4),
+			PackedFilter.greaterThanOrEqual(0, 4, 2, "1000.005").select(RECORDS, 0, 4, 5));
+		assertEquals("ltx", bits(0, 2, 3),
+			PackedFilter.lessThan(0, 4, 2, "1000.005").select(RECORDS, 0, 4, 5));
+		try {
+			PackedFilter.equalTo(0, 4, 2, "1000.005");
+			fail("eqx Unexpected pass");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+	/**
+	 * Test range constants too large for the field.
+	 */
+	public void testOutOfRange()
+	{
+		assertEquals("ltbig", bits(0, 1, 2, 3, 4),
+			PackedFilter.lessThan(0, 4, 2, "100000").select(RECORDS, 0, 4, 5));
+		assertEquals("lebig", bits(),
+			PackedFilter.lessThanOrEqual(0, 4, 2, "-100000").select(RECORDS, 0, 4, 5));
+		assertEquals("gtbig", bits(),
+			PackedFilter.greaterThan(0, 4, 2, "100000").select(RECORDS, 0, 4, 5));
+		assertEquals("gebig", bits(0, 1, 2, 3, 4),
+			PackedFilter.greaterThanOrEqual(0, 4, 2, "-1e6").select(RECORDS, 0, 4, 5));
+		assertEquals("btwlow", bits(0, 2, 3),
+			PackedFilter.between(0, 4, 2, "-100000", "1000").select(RECORDS, 0, 4, 5));
+		assertEquals("btwhigh", bits(1, 4),
+			PackedFilter.between(0, 4, 2, "1000.01", "100000").select(RECORDS, 0, 4, 5));
+		assertEquals("btwall", bits(0, 1, 2, 3, 4),
+			PackedFilter.between(0, 4, 2, "-100000", "100000").select(RECORDS, 0, 4, 5));
+		assertEquals("btwnone", bits(),
+			PackedFilter.between(0, 4, 2, "100000", "200000").select(RECORDS, 0, 4, 5));
+		assertFalse("m1", PackedFilter.greaterThan(0, 4, 2, "100000").matches(RECORDS, 0));
+		try {
+			PackedFilter.notEqualTo(0, 4, 2, "100000");
+			fail("nebig Unexpected pass");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+	/**
+	 * Test equality and IN list predicates, including negative zero.
+	 */
+	public void testEquality()
+	{
+		assertEquals("eq0", bits(3),
+			PackedFilter.equalTo(0, 4, 2, "0").select(RECORDS, 0, 4, 5));
+		assertEquals("ne0", bits(0, 1, 2, 4),
+			PackedFilter.notEqualTo(0, 4, 2, "0").select(RECORDS, 0, 4, 5));
+		assertEquals("in", bits(2, 4),
+			PackedFilter.in(0, 4, 2, "-2.5", "12345.67", "7").select(RECORDS, 0, 4, 5));
+		assertTrue("m1", PackedFilter.equalTo(0, 4, 2, "-2.50").matches(RECORDS, 8));
+	}
+	/**
+	 * Test chaining of filters over a selection.
+	 */
+	public void testRefine()
+	{
+		BitSet sel = PackedFilter.greaterThan(0, 4, 2, "0").select(RECORDS, 0, 4, 5);
+		PackedFilter.lessThan(0, 4, 2, "10000").select(RECORDS, 0, 4, 5, sel);
+		assertEquals("refine", bits(0, 1), sel);
+	}
+	/**
+	 * Test argument checking.
+	 */
+	public void testBadArguments()
+	{
+		String[][] bad = {
+			{"123456789"}, {"1x"},
+		};
+		for (String[] b : bad)
+		{
+			try {
+				PackedFilter.equalTo(0, 4, 0, b[0]);
+				fail("Bad constant: " + b[0]);
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+		}
+		try {
+			PackedFilter.equalTo(2, 4, 0, "1").select(RECORDS, 0, 4, 5);
+			fail("Bad field offset");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+		byte[] badSign = {(byte)0x00, (byte)0x12};
+		try {
+			PackedFilter.equalTo(0, 2, 0, "1").matches(badSign, 0);
+			fail("Bad sign");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+	/**
+	 * Private method to build an expected selection.
+	 */
+	private static BitSet bits(int... set)
+	{
+		BitSet ret = new BitSet();
+		for (int i : set)
+			ret.set(i);
+		return ret;
+	}
+} // end of class
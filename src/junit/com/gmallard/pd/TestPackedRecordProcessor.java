@@ -0,0 +1,170 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import junit.framework.TestCase;
+/**
+ * This class contains unit tests for the <code>PackedRecordProcessor</code>
+ * class.  A small annotated class is compiled with the processor, and the
+ * generated mapper is exercised.
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public class TestPackedRecordProcessor extends TestCase {
+	/**
+	 * Source of the annotated test record.
+	 */
+	private static final String SOURCE =
+		"package rec;\n" +
+		"import com.gmallard.pd.*;\n" +
+		"@PackedRecord(length = 31)\n" +
+		"public class Acct {\n" +
+		"	@PackedField(offset = 0, digits = 5, signed = false) public int branch;\n" +
+		"	@PackedField(offset = 3, digits = 9, scale = 2) public java.math.BigDecimal amount;\n" +
+		"	@PackedField(offset = 8, digits = 7) public long count;\n" +
+		"	@PackedField(offset = 12, digits = 31, scale = 4) public java.math.BigDecimal ledger;\n" +
+		"	@PackedField(offset = 28, digits = 4) public int code;\n" +
+		"}\n";
+	/**
+	 * Test decode and encode through a generated mapper.
+	 */
+	public void testGeneratedMapper() throws Exception
+	{
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		if (javac == null)
+			return;		// Running on a JRE, nothing to test
+		File dir = compile(javac, SOURCE, new ByteArrayOutputStream());
+		assertNotNull("compile", dir);
+		try {
+			check(dir);
+		} finally {
+			delete(dir);
+		}
+	}
+	/**
+	 * Private method to exercise the generated mapper in <code>dir</code>.
+	 */
+	private void check(File dir) throws Exception
+	{
+		URLClassLoader loader = new URLClassLoader(new URL[] {dir.toURI().toURL()},
+				getClass().getClassLoader());
+		Class<?> acct = loader.loadClass("rec.Acct");
+		Class<?> mapper = loader.loadClass("rec.AcctMapper");
+		assertEquals("rl", 31, mapper.getField("RECORD_LENGTH").getInt(null));
+		Method decode = mapper.getMethod("decode", byte[].class, int.class, acct);
+		Method encode = mapper.getMethod("encode", acct, byte[].class, int.class);
+		//
+		byte[] rec = {
+			(byte)0x01, (byte)0x23, (byte)0x4f,
+			(byte)0x00, (byte)0x01, (byte)0x23, (byte)0x45, (byte)0x6d,
+			(byte)0x00, (byte)0x00, (byte)0x04, (byte)0x2c,
+			(byte)0x12, (byte)0x34, (byte)0x56, (byte)0x78,
+			(byte)0x90, (byte)0x12, (byte)0x34, (byte)0x56,
+			(byte)0x78, (byte)0x90, (byte)0x12, (byte)0x34,
+			(byte)0x56, (byte)0x78, (byte)0x90, (byte)0x1c,
+			(byte)0x01, (byte)0x23, (byte)0x4c,
+		};
+		Object a = acct.getDeclaredConstructor().newInstance();
+		decode.invoke(null, rec, 0, a);
+		assertEquals("br", 1234, acct.getField("branch").getInt(a));
+		assertEquals("amt", new BigDecimal("-1234.56"), acct.getField("amount").get(a));
+		assertEquals("cnt", 42L, acct.getField("count").getLong(a));
+		assertEquals("ldg", new BigDecimal("123456789012345678901234567.8901"),
+				acct.getField("ledger").get(a));
+		assertEquals("code", 1234, acct.getField("code").getInt(a));
+		//
+		byte[] out = new byte[31];
+		encode.invoke(null, a, out, 0);
+		assertTrue("enc", Arrays.equals(rec, out));
+		// A 4 digit field has room for 5 digits, encode must still refuse.
+		acct.getField("code").setInt(a, 12345);
+		try {
+			encode.invoke(null, a, out, 0);
+			fail("Unexpected pass");
+		} catch(InvocationTargetException ite) {
+			assertTrue("IAEOK", ite.getCause() instanceof IllegalArgumentException);
+		}
+		loader.close();
+	}
+	/**
+	 * Test that layout errors are reported at compile time.
+	 */
+	public void testLayoutError() throws Exception
+	{
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		if (javac == null)
+			return;
+		String bad = SOURCE.replace("offset = 28", "offset = 29");
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		assertNull("bad", compile(javac, bad, err));
+		assertTrue("msg", err.toString().contains("bad @PackedField"));
+	}
+	/**
+	 * Private method to compile a source with the processor.
+	 * @param err Receives the compiler diagnostics.
+	 * @return The output directory, or <code>null</code> if compilation
+	 * failed, in which case the directory has been deleted.
+	 */
+	private static File compile(JavaCompiler javac, String source,
+			ByteArrayOutputStream err) throws Exception
+	{
+		File dir = File.createTempFile("pdproc", "");
+		dir.delete();
+		File pkg = new File(dir, "rec");
+		pkg.mkdirs();
+		File src = new File(pkg, "Acct.java");
+		FileWriter w = new FileWriter(src);
+		w.write(source);
+		w.close();
+		int rc = javac.run(null, null, err,
+				"-classpath", System.getProperty("java.class.path"),
+				"-processor", PackedRecordProcessor.class.getName(),
+				"-d", dir.getPath(), "-s", dir.getPath(),
+				src.getPath());
+		if (rc == 0)
+			return dir;
+		delete(dir);
+		return null;
+	}
+	/**
+	 * Private method to delete a file or directory tree.
+	 */
+	private static void delete(File f)
+	{
+		File[] children = f.listFiles();
+		if (children != null)
+		{
+			for (File c : children)
+				delete(c);
+		}
+		f.delete();
+	}
+} // end of class
@@ -19,7 +19,11 @@ This file is part of the Java packed decimal utilities project.
    along with the Java packed decimal utilities project.  
    If not, see <http://www.gnu.org/licenses/>.
 */
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.util.Arrays;
+import java.util.Random;
 import junit.framework.TestCase;
 /**
  * This class contains unit tests for the <code>Packer</code>
@@ -114,5 +118,167 @@ public class TestPacker extends TestCase {
 			};
 		assertTrue("mceveneq", Arrays.equals(got, expected));
 	}
+	/**
+	 * Test packing of signed <code>long</code> values into a field.
+	 */
+	public void testPackLongField()
+	{
+		byte[] got = new byte[6];
+		Packer.pack(-12345L, got, 1, 4);
+		byte[] expected = {
+				(byte)0x00, (byte)0x00, (byte)0x12, (byte)0x34,
+				(byte)0x5d, (byte)0x00,
+			};
+		assertTrue("plneg", Arrays.equals(got, expected));
+		Packer.packUnsigned(7L, got, 0, 1);
+		assertEquals("plu", (byte)0x7f, got[0]);
+		byte[] min = new byte[10];
+		Packer.pack(Long.MIN_VALUE, min, 0, 10);
+		assertEquals("plmin", Long.MIN_VALUE, Unpacker.getLong(min, 0, 10));
+		long[] tooBig = {1000L, -1000L};
+		for (long v : tooBig)
+		{
+			try {
+				Packer.pack(v, got, 0, 2);
+				fail("Unexpected pass: " + v);
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+		}
+		try {
+			Packer.packUnsigned(-1L, got, 0, 2);
+			fail("Unexpected pass: -1");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+	/**
+	 * Test packing of wide <code>BigInteger</code> values into a field,
+	 * against the <code>String</code> path.
+	 */
+	public void testPackBigIntegerField()
+	{
+		Random rnd = new Random(20081019L);
+		for (int numBytes = 1; numBytes <= 40; numBytes++)
+		{
+			for (int i = 0; i < 20; i++)
+			{
+				BigInteger v = new BigInteger(rnd.nextInt(numBytes * 7) + 1, rnd)
+					.mod(BigInteger.TEN.pow(2 * numBytes - 1));
+				byte[] got = new byte[numBytes];
+				Packer.pack(v, got, 0, numBytes);
+				byte[] str = Packer.pack(v);
+				byte[] expected = new byte[numBytes];
+				System.arraycopy(str, 0, expected, numBytes - str.length, str.length);
+				assertTrue("pbi" + v, Arrays.equals(got, expected));
+				Packer.pack(v.negate(), got, 0, numBytes);
+				assertEquals("pbin" + v, v.negate(),
+						Unpacker.getBigInteger(got, 0, numBytes));
+			}
+		}
+		byte[] field = new byte[16];
+		BigInteger max = BigInteger.TEN.pow(31);
+		Packer.packUnsigned(max.subtract(BigInteger.ONE), field, 0, 16);
+		assertEquals("pbimax", (byte)0x9f, field[15]);
+		try {
+			Packer.pack(max, field, 0, 16);
+			fail("Unexpected pass: " + max);
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+	/**
+	 * Test checking of a declared digit count.
+	 */
+	public void testCheckDigits()
+	{
+		assertEquals("cd1", 9999L, Packer.checkDigits(9999L, 4));
+		assertEquals("cd2", -9999L, Packer.checkDigits(-9999L, 4));
+		assertEquals("cd3", Long.MIN_VALUE, Packer.checkDigits(Long.MIN_VALUE, 19));
+		BigInteger wide = BigInteger.TEN.pow(30).subtract(BigInteger.ONE);
+		assertSame("cd4", wide, Packer.checkDigits(wide, 30));
+		Object[][] bad = {
+			{10000L, 4}, {-10000L, 4}, {1L, 0}, {Long.MIN_VALUE, 18},
+			{wide.add(BigInteger.ONE), 30}, {wide.negate().subtract(BigInteger.ONE), 30},
+			{wide, 18},
+		};
+		for (Object[] b : bad)
+		{
+			try {
+				if (b[0] instanceof Long)
+					Packer.checkDigits((Long)b[0], (Integer)b[1]);
+				else
+					Packer.checkDigits((BigInteger)b[0], (Integer)b[1]);
+				fail("Unexpected pass: " + b[0] + ", " + b[1]);
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+		}
+	}
+	/**
+	 * Test <code>packDouble</code> against <code>BigDecimal</code>
+	 * rounding, for every rounding mode, on both the fast and slow paths.
+	 */
+	public void testPackDouble()
+	{
+		Random rnd = new Random(20081020L);
+		RoundingMode[] modes = {
+			RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING,
+			RoundingMode.FLOOR, RoundingMode.HALF_UP, RoundingMode.HALF_DOWN,
+			RoundingMode.HALF_EVEN,
+		};
+		double[] edge = {
+			0.0, -0.0, 0.5, 1.5, 2.5, -2.5, 0.125, 1.005, 2.675, 0.1, -0.7,
+			123456.785, 4503599627370495.5, 1e-300, 9.5e20,
+		};
+		byte[] got = new byte[13];
+		byte[] expected = new byte[13];
+		for (int i = 0; i < 20000; i++)
+		{
+			double d = i < edge.length ? edge[i] :
+				(rnd.nextDouble() - 0.5) * Math.pow(10, rnd.nextInt(16));
+			int scale = i < edge.length ? 2 : rnd.nextInt(20);
+			for (RoundingMode mode : modes)
+			{
+				BigDecimal bd = new BigDecimal(d).setScale(scale, mode);
+				if (bd.precision() > 25)
+					continue;
+				Packer.pack(bd.unscaledValue(), expected, 0, 13);
+				Packer.packDouble(d, scale, mode, got, 0, 13);
+				assertTrue("pd " + d + " " + scale + " " + mode,
+						Arrays.equals(expected, got));
+			}
+		}
+		byte[] half = Packer.packDouble(2.5, 3, 0, RoundingMode.HALF_EVEN);
+		assertTrue("pdh", Arrays.equals(new byte[] {(byte)0x00, (byte)0x2c}, half));
+		byte[] four = Packer.packDouble(9999.0, 4, 0, RoundingMode.HALF_UP);
+		assertTrue("pd4", Arrays.equals(new byte[] {(byte)0x09, (byte)0x99, (byte)0x9c},
+				four));
+		assertEquals("pd20", new BigInteger("10000000000000000000"),
+				Unpacker.getBigInteger(Packer.packDouble(1e19, 20, 0,
+						RoundingMode.HALF_UP), 0, 11));
+		Object[][] wide = {
+			{12345.0, 4}, {-10000.0, 4}, {9999.5, 4}, {1e20, 20},
+		};
+		for (Object[] w : wide)
+		{
+			try {
+				Packer.packDouble((Double)w[0], (Integer)w[1], 0, RoundingMode.HALF_UP);
+				fail("Unexpected pass: " + w[0] + ", " + w[1]);
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+		}
+		Object[] bad = {Double.NaN, Double.POSITIVE_INFINITY, 0.25};
+		for (Object b : bad)
+		{
+			try {
+				Packer.packDouble((Double)b, 1, RoundingMode.UNNECESSARY, got, 0, 13);
+				fail("Unexpected pass: " + b);
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+		}
+	}
 } // end of class
 
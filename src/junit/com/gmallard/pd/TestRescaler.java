@@ -0,0 +1,195 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.BitSet;
+import junit.framework.TestCase;
+/**
+ * This class contains unit tests for the <code>Rescaler</code>
+ * class.
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public class TestRescaler extends TestCase {
+	/**
+	 * Test widening, e.g. S9(7)V99 to S9(11)V9(4).
+	 */
+	public void testWiden()
+	{
+		byte[] src = {(byte)0x01, (byte)0x23, (byte)0x45, (byte)0x67, (byte)0x8d};
+		byte[] dest = new byte[8];
+		assertTrue("w1", Rescaler.rescale(src, 0, 5, 2, dest, 0, 8, 4,
+				RoundingMode.HALF_UP));
+		byte[] expected = {(byte)0x00, (byte)0x00, (byte)0x01, (byte)0x23,
+				(byte)0x45, (byte)0x67, (byte)0x80, (byte)0x0d,};
+		assertTrue("w2", Arrays.equals(expected, dest));
+		// Odd shift, F sign becomes preferred.
+		byte[] src2 = {(byte)0x12, (byte)0x3f};
+		byte[] dest2 = new byte[3];
+		assertTrue("w3", Rescaler.rescale(src2, 0, 2, 0, dest2, 0, 3, 1,
+				RoundingMode.DOWN));
+		byte[] expected2 = {(byte)0x01, (byte)0x23, (byte)0x0c};
+		assertTrue("w4", Arrays.equals(expected2, dest2));
+	}
+	/**
+	 * Test narrowing with the rounding modes.
+	 */
+	public void testRound()
+	{
+		// 1234.5 and -1234.5 to scale 0
+		byte[] pos = {(byte)0x00, (byte)0x12, (byte)0x34, (byte)0x5c};
+		byte[] neg = {(byte)0x00, (byte)0x12, (byte)0x34, (byte)0x5d};
+		Object[][] cases = {
+			{RoundingMode.HALF_UP, pos, "01235c"},
+			{RoundingMode.HALF_UP, neg, "01235d"},
+			{RoundingMode.DOWN, pos, "01234c"},
+			{RoundingMode.HALF_DOWN, pos, "01234c"},
+			{RoundingMode.HALF_EVEN, pos, "01234c"},
+			{RoundingMode.CEILING, neg, "01234d"},
+			{RoundingMode.FLOOR, neg, "01235d"},
+			{RoundingMode.UP, pos, "01235c"},
+		};
+		for (Object[] c : cases)
+		{
+			byte[] dest = new byte[3];
+			assertTrue("r" + c[0], Rescaler.rescale((byte[])c[1], 0, 4, 1,
+					dest, 0, 3, 0, (RoundingMode)c[0]));
+			assertEquals("r" + c[0] + c[2], c[2], hex(dest));
+		}
+		try {
+			Rescaler.rescale(pos, 0, 4, 1, new byte[3], 0, 3, 0,
+					RoundingMode.UNNECESSARY);
+			fail("Unexpected pass");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+	/**
+	 * Test that a zero result is positive, and carry into new digits.
+	 */
+	public void testZeroAndCarry()
+	{
+		byte[] src = {(byte)0x00, (byte)0x4d};	// -0.04
+		byte[] dest = new byte[1];
+		assertTrue("z1", Rescaler.rescale(src, 0, 2, 2, dest, 0, 1, 0,
+				RoundingMode.HALF_UP));
+		assertEquals("z2", "0c", hex(dest));
+		byte[] nines = {(byte)0x99, (byte)0x9c};	// 99.9
+		byte[] dest2 = new byte[2];
+		assertTrue("c1", Rescaler.rescale(nines, 0, 2, 1, dest2, 0, 2, 0,
+				RoundingMode.HALF_UP));
+		assertEquals("c2", "100c", hex(dest2));
+	}
+	/**
+	 * Test overflow detection, including overflow from rounding.
+	 */
+	public void testOverflow()
+	{
+		byte[] src = {(byte)0x12, (byte)0x34, (byte)0x5c};
+		byte[] dest = new byte[2];
+		assertFalse("o1", Rescaler.rescale(src, 0, 3, 0, dest, 0, 2, 0,
+				RoundingMode.DOWN));
+		assertEquals("o2", "345c", hex(dest));
+		byte[] nines = {(byte)0x99, (byte)0x9c};	// 99.9
+		assertFalse("o3", Rescaler.rescale(nines, 0, 2, 1, new byte[1], 0, 1, 0,
+				RoundingMode.HALF_UP));
+		byte[] negNines = {(byte)0x99, (byte)0x9d};	// -99.9
+		byte[] zero = new byte[1];
+		assertFalse("o4", Rescaler.rescale(negNines, 0, 2, 1, zero, 0, 1, 0,
+				RoundingMode.HALF_UP));
+		assertEquals("o5", "0c", hex(zero));
+		try {
+			Rescaler.rescale(new byte[] {(byte)0x12}, 0, 1, 0, new byte[1], 0, 1, 0,
+					RoundingMode.DOWN);
+			fail("Bad sign");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+	/**
+	 * Test the bulk method over record buffers.
+	 */
+	public void testRescaleAll()
+	{
+		byte[] src = {
+			(byte)0xff, (byte)0x01, (byte)0x5c,
+			(byte)0xff, (byte)0x99, (byte)0x9d,
+			(byte)0xff, (byte)0x00, (byte)0x4c,
+		};
+		byte[] dest = new byte[6];
+		BitSet overflows = new BitSet();
+		Rescaler r = new Rescaler(2, 1, 2, 0, RoundingMode.HALF_UP);
+		assertEquals("b1", 0, r.rescaleAll(src, 1, 3, dest, 0, 2, 3, overflows));
+		assertEquals("b2", "002c100d000c", hex(dest));
+		assertTrue("b3", overflows.isEmpty());
+		Rescaler n = new Rescaler(2, 1, 1, 0, RoundingMode.HALF_UP);
+		assertEquals("b4", 1, n.rescaleAll(src, 1, 3, dest, 0, 1, 3, overflows));
+		assertTrue("b5", overflows.get(1));
+	}
+	/**
+	 * Test offset and buffer length checking.
+	 */
+	public void testBadArguments()
+	{
+		Rescaler r = new Rescaler(2, 1, 2, 0, RoundingMode.HALF_UP);
+		byte[] src = {(byte)0x01, (byte)0x5c, (byte)0x01, (byte)0x5c};
+		byte[] dest = new byte[4];
+		int[][] single = {
+			{-1, 0}, {3, 0}, {0, -1}, {0, 3},
+		};
+		for (int[] b : single)
+		{
+			try {
+				r.rescale(src, b[0], dest, b[1]);
+				fail("Bad offsets: " + b[0] + ", " + b[1]);
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+		}
+		int[][] bulk = {
+			{-1, 2, 0, 2, 2}, {0, 2, 0, 2, 3}, {0, 1, 0, 2, 2},
+			{0, 2, 1, 2, 2}, {0, 2, 0, 2, -1}, {1, 2, 0, 2, 2},
+		};
+		for (int[] b : bulk)
+		{
+			try {
+				r.rescaleAll(src, b[0], b[1], dest, b[2], b[3], b[4], null);
+				fail("Bad batch: " + b[0] + ", " + b[1] + ", " + b[2] + ", " +
+						b[3] + ", " + b[4]);
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+		}
+		assertEquals("b1", "00000000", hex(dest));
+		assertEquals("b2", 0, r.rescaleAll(src, 0, 2, dest, 4, 2, 0, null));
+	}
+	/**
+	 * Private method to show a <code>byte[]</code> in hexadecimal.
+	 */
+	private static String hex(byte[] ba)
+	{
+		StringBuilder bldr = new StringBuilder();
+		for (byte b : ba)
+			bldr.append(Unpacker.getHexStringForByte(b));
+		return bldr.toString();
+	}
+} // end of class
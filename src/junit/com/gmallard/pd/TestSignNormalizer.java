@@ -0,0 +1,97 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.util.Arrays;
+import junit.framework.TestCase;
+/**
+ * This class contains unit tests for the <code>SignNormalizer</code>
+ * class.
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public class TestSignNormalizer extends TestCase {
+	/**
+	 * Test rewriting and counting of every sign nibble.
+	 */
+	public void testNormalize()
+	{
+		// Two fields per 4 byte record, ending at offsets 1 and 3.
+		byte[] buffer = new byte[32];
+		for (int i = 0; i < 16; i++)
+		{
+			buffer[2 * i] = (byte)0x12;
+			buffer[2 * i + 1] = (byte)(0x30 | i);
+		}
+		SignNormalizer.Counts counts = SignNormalizer.normalize(buffer, 0, 4, 8,
+				new int[] {1, 3});
+		int[] expected = {
+			0, 1, 2, 3, 4, 5, 6, 7, 8, 9,
+			0x0c, 0x0d, 0x0c, 0x0d, 0x0c, 0x0c,
+		};
+		for (int i = 0; i < 16; i++)
+		{
+			assertEquals("n" + i, (byte)(0x30 | expected[i]), buffer[2 * i + 1]);
+			assertEquals("c" + i, 1L, counts.getCount(i));
+		}
+		assertEquals("rw", 4L, counts.getRewritten());
+		assertEquals("un", 2L, counts.getUnchanged());
+		assertEquals("inv", 10L, counts.getInvalid());
+	}
+	/**
+	 * Test that the parallel variant agrees with the serial one.
+	 */
+	public void testParallel()
+	{
+		int recordCount = 100000;
+		byte[] serial = new byte[recordCount * 5];
+		for (int i = 0; i < serial.length; i++)
+			serial[i] = (byte)(i * 7 + (i >> 3));
+		byte[] parallel = serial.clone();
+		int[] ends = {0, 2, 4};
+		SignNormalizer.Counts s = SignNormalizer.normalize(serial, 0, 5,
+				recordCount, ends);
+		SignNormalizer.Counts p = SignNormalizer.normalizeParallel(parallel, 0, 5,
+				recordCount, ends);
+		assertTrue("same", Arrays.equals(serial, parallel));
+		for (int i = 0; i < 16; i++)
+			assertEquals("pc" + i, s.getCount(i), p.getCount(i));
+		assertEquals("total", 3L * recordCount,
+				p.getRewritten() + p.getUnchanged() + p.getInvalid());
+	}
+	/**
+	 * Test argument checking.
+	 */
+	public void testBadArguments()
+	{
+		try {
+			SignNormalizer.normalize(new byte[8], 0, 4, 2, new int[] {4});
+			fail("Bad field end");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+		try {
+			SignNormalizer.normalize(new byte[8], 0, 4, 3, new int[] {3});
+			fail("Short buffer");
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+} // end of class
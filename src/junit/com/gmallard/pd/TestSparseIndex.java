@@ -0,0 +1,112 @@
+package com.gmallard.pd;
+/*
+Copyright (C) 2008 Guy M. Allard
+
+This file is part of the Java packed decimal utilities project.
+
+   The Java packed decimal utilities project is free software: you can redistribute it 
+   and/or modify
+   it under the terms of the GNU General Public License as published by
+   the Free Software Foundation, either version 3 of the License, or
+   (at your option) any later version.
+
+   The Java packed decimal utilities project is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+   GNU General Public License for more details.
+
+   You should have received a copy of the GNU General Public License
+   along with the Java packed decimal utilities project.  
+   If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import junit.framework.TestCase;
+/**
+ * This class contains unit tests for the <code>SparseIndex</code>
+ * class.
+ * @author Guy Allard
+ * @since 2026.10.19
+ */
+public class TestSparseIndex extends TestCase {
+	/**
+	 * Record length of the test data.
+	 */
+	private static final int RECLEN = 6;
+	/**
+	 * Private method to build test records: a 4 byte key at offset 1.
+	 */
+	private static byte[] records(long[] keys)
+	{
+		byte[] ret = new byte[keys.length * RECLEN];
+		for (int i = 0; i < keys.length; i++)
+		{
+			ret[i * RECLEN] = (byte)0xee;
+			Packer.pack(keys[i], ret, i * RECLEN + 1, 4);
+			ret[i * RECLEN + 5] = (byte)i;
+		}
+		return ret;
+	}
+	/**
+	 * Sorted test keys, with negative keys and duplicates.
+	 */
+	private static final long[] KEYS = {
+		-500, -20, -20, -3, 0, 1, 2, 2, 2, 2, 7, 11, 12, 13, 100, 101, 999, 1000,
+	};
+	/**
+	 * Test lookups at several sampling intervals against a linear scan.
+	 */
+	public void testFind()
+	{
+		ByteBuffer data = ByteBuffer.wrap(records(KEYS));
+		for (int interval = 1; interval <= KEYS.length + 1; interval++)
+		{
+			SparseIndex idx = SparseIndex.build(data, RECLEN, 1, 4, interval);
+			assertEquals("rc", KEYS.length, idx.getRecordCount());
+			for (long k = -501; k <= 1001; k++)
+			{
+				int expected = -1;
+				for (int i = 0; i < KEYS.length; i++)
+				{
+					if (KEYS[i] == k)
+					{
+						expected = i;
+						break;
+					}
+				}
+				assertEquals("f" + interval + ":" + k, expected, idx.find(data, k));
+			}
+		}
+	}
+	/**
+	 * Test that a negative zero search key finds a positive zero.
+	 */
+	public void testNegativeZero()
+	{
+		ByteBuffer data = ByteBuffer.wrap(records(KEYS));
+		SparseIndex idx = SparseIndex.build(data, RECLEN, 1, 4, 3);
+		byte[] key = {(byte)0x00, (byte)0x00, (byte)0x00, (byte)0x0d};
+		assertEquals("nz", 4, idx.find(data, key, 0));
+	}
+	/**
+	 * Test writing and reading the index, and lookups in a mapped file.
+	 */
+	public void testMappedFile() throws Exception
+	{
+		File f = File.createTempFile("pdidx", ".dat");
+		f.deleteOnExit();
+		FileOutputStream fos = new FileOutputStream(f);
+		fos.write(records(KEYS));
+		fos.close();
+		ByteBuffer data = SparseIndex.map(f);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		SparseIndex.build(data, RECLEN, 1, 4, 4).write(bos);
+		SparseIndex idx = SparseIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+		assertEquals("m1", 11, idx.find(data, 11L));
+		assertEquals("m2", 17, idx.find(data, 1000L));
+		assertEquals("m3", -1, idx.find(data, 3L));
+	}
+} // end of class
@@ -19,6 +19,9 @@ This file is part of the Java packed decimal utilities project.
    along with the Java packed decimal utilities project.  
    If not, see <http://www.gnu.org/licenses/>.
 */
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
 import junit.framework.TestCase;
 /**
  * This class contains unit tests for the <code>Unpacker</code>
@@ -114,4 +117,83 @@ public class TestUnpacker extends TestCase {
 			assertTrue("IAEOK", true);
 		}
 	}
+	/**
+	 * Test the <code>getLong</code> method.
+	 */
+	public void testGetLong() {
+		byte[] testa = {
+				(byte)0xff, (byte)0x12, (byte)0x3d,
+			};
+		assertEquals("tl1", -123L, Unpacker.getLong(testa, 1, 2));
+		testa[2] = (byte)0x3f;
+		assertEquals("tl2", 123L, Unpacker.getLong(testa, 1, 2));
+		byte[] max = {
+				(byte)0x92, (byte)0x23, (byte)0x37, (byte)0x20, (byte)0x36,
+				(byte)0x85, (byte)0x47, (byte)0x75, (byte)0x80, (byte)0x7c,
+			};
+		assertEquals("tl3", Long.MAX_VALUE, Unpacker.getLong(max, 0, 10));
+		byte[][] bad = {
+				{(byte)0x12, (byte)0x34},		// bad sign
+				{(byte)0x1a, (byte)0x3c},		// bad digit
+				{(byte)0x92, (byte)0x23, (byte)0x37, (byte)0x20, (byte)0x36,
+				 (byte)0x85, (byte)0x47, (byte)0x75, (byte)0x80, (byte)0x8c},
+			};
+		for (byte[] ba : bad)
+		{
+			try {
+				long result = Unpacker.getLong(ba, 0, ba.length);
+				fail("tl Unexpected pass: " + result);
+			} catch(IllegalArgumentException iae) {
+				assertTrue("IAEOK", true);
+			}
+		}
+	}
+	/**
+	 * Test the <code>getBigInteger</code> and <code>getBigDecimal</code>
+	 * methods.
+	 */
+	public void testGetBigInteger() {
+		String digits = "1234567890123456789012345678901";
+		byte[] testa = Packer.pack(digits);
+		assertEquals("tbi1", new BigInteger(digits),
+				Unpacker.getBigInteger(testa, 0, testa.length));
+		PDUtils.setSign(testa, PDUtils.NEGATIVE);
+		assertEquals("tbi2", new BigDecimal("-123456789012345678901234567.8901"),
+				Unpacker.getBigDecimal(testa, 0, testa.length, 4));
+		byte[] testb = {(byte)0x12, (byte)0x3d};
+		assertEquals("tbi3", new BigDecimal("-1.23"),
+				Unpacker.getBigDecimal(testb, 0, 2, 2));
+		testa[3] = (byte)0x7a;
+		try {
+			BigInteger result = Unpacker.getBigInteger(testa, 0, testa.length);
+			fail("tbi Unexpected pass: " + result);
+		} catch(IllegalArgumentException iae) {
+			assertTrue("IAEOK", true);
+		}
+	}
+	/**
+	 * Test <code>unpackDouble</code> against <code>BigDecimal</code>, on
+	 * both the fast and slow paths.
+	 */
+	public void testUnpackDouble() {
+		Random rnd = new Random(20081021L);
+		byte[] field = new byte[16];
+		for (int i = 0; i < 20000; i++)
+		{
+			BigInteger n = new BigInteger(1 + rnd.nextInt(100), rnd);
+			if (rnd.nextBoolean())
+				n = n.negate();
+			int scale = rnd.nextInt(25);
+			Packer.pack(n, field, 0, 16);
+			assertEquals("ud " + n + " " + scale,
+					new BigDecimal(n, scale).doubleValue(),
+					Unpacker.unpackDouble(field, 0, 16, scale), 0.0);
+			byte[] small = new byte[8];
+			long m = n.longValue() % 100000000000000L;
+			Packer.pack(m, small, 0, 8);
+			assertEquals("uds " + m + " " + scale,
+					BigDecimal.valueOf(m, scale).doubleValue(),
+					Unpacker.unpackDouble(small, 0, 8, scale), 0.0);
+		}
+	}
 } // end of class